@@ -0,0 +1,96 @@
+package com.example.benchmark;
+
+import com.example.support.StubAccountServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers over HTTP at high concurrency with Tomcat on platform threads (the default pool of 200)
+ * and on virtual threads. Account-service is a {@link StubAccountServer} that answers after
+ * {@code accountServiceDelay} milliseconds, so request threads spend almost all their time waiting
+ * on it. The delay is long enough that the benchmark stays I/O bound on a small machine. The
+ * circuit breaker, concurrency limit and connection pool are opened up so that the request threads
+ * are the only bound; in production those limits are what keeps virtual threads from flooding
+ * account-service. Responses other than 200, such as 503 when an account lock times
+ * out, are counted in {@code rejected}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(300)
+public class HttpLoadBenchmark {
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"500"})
+    private int accountServiceDelay;
+
+    private StubAccountServer accountServer;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI transferUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // the stub closes idle connections beyond 200 by default, which the client pool only notices on its next request
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "1000");
+        accountServer = new StubAccountServer();
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            accountServer.addAccount(id, new BigDecimal("1000000000"));
+        }
+        accountServer.setDelay(Duration.ofMillis(accountServiceDelay));
+        context = ServiceContext.startServer(accountServer.getUrl(),
+                "spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                "account.service.guard.enabled=false",
+                "account.client.http.max-connections-per-route=1000",
+                "account.client.http.max-connections-total=1000");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        transferUri = URI.create("http://localhost:" + ServiceContext.port(context) + "/transactions/transfer");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        accountServer.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Responses {
+        public long rejected;
+    }
+
+    @Benchmark
+    public int transfer(Accounts accounts, Responses responses) throws IOException, InterruptedException {
+        long sender = accounts.random.nextLong(ACCOUNTS) + 1;
+        long recipient = (sender + accounts.random.nextLong(ACCOUNTS - 1)) % ACCOUNTS + 1;
+        HttpRequest request = HttpRequest.newBuilder(transferUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"senderAccountId\":" + sender + ",\"recipientAccountId\":" + recipient + ",\"amount\":1.00}"))
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            responses.rejected++;
+        }
+        return status;
+    }
+}
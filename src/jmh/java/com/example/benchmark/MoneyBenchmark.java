@@ -0,0 +1,135 @@
+package com.example.benchmark;
+
+import com.example.entity.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the money handling in one transfer with {@code BigDecimal} and with {@link Money}:
+ * {@code transfer} parses the request and both accounts from JSON, checks funds, moves the amount
+ * and writes both new balances back to JSON, as the service and account-service exchange them.
+ * {@code accumulate} sums a batch of amounts, like batch netting and the daily activity totals.
+ * Run with {@code -prof gc} for the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class MoneyBenchmark {
+    private static final int SAMPLES = 64;
+    static final int BATCH = 1000;
+
+    @Param({"decimal", "cents"})
+    private String representation;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectReader requestReader;
+    private ObjectReader accountReader;
+    private ObjectWriter balanceWriter;
+    private final byte[][] requests = new byte[SAMPLES][];
+    private final byte[][] senders = new byte[SAMPLES][];
+    private final byte[][] recipients = new byte[SAMPLES][];
+    private final BigDecimal[] decimalAmounts = new BigDecimal[BATCH];
+    private final Money[] moneyAmounts = new Money[BATCH];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean cents = "cents".equals(representation);
+        requestReader = objectMapper.readerFor(cents ? MoneyRequest.class : DecimalRequest.class);
+        accountReader = objectMapper.readerFor(cents ? MoneyAccount.class : DecimalAccount.class);
+        balanceWriter = objectMapper.writerFor(cents ? Money.class : BigDecimal.class);
+        for (int i = 0; i < SAMPLES; i++) {
+            requests[i] = ("{\"senderAccountId\":" + i + ",\"recipientAccountId\":" + (i + 1) + ",\"amount\":" + (i + 1) + "." + (i % 100) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            senders[i] = account(i, (100_000 + i) + ".25");
+            recipients[i] = account(i + 1, (2_000 + i) + ".5");
+        }
+        for (int i = 0; i < BATCH; i++) {
+            decimalAmounts[i] = BigDecimal.valueOf(i * 37L % 100_000, 2);
+            moneyAmounts[i] = Money.of(decimalAmounts[i]);
+        }
+    }
+
+    @Benchmark
+    public void transfer(Blackhole blackhole) throws IOException {
+        int sample = next++ & (SAMPLES - 1);
+        if ("cents".equals(representation)) {
+            MoneyRequest request = requestReader.readValue(requests[sample]);
+            MoneyAccount sender = accountReader.readValue(senders[sample]);
+            MoneyAccount recipient = accountReader.readValue(recipients[sample]);
+            if (sender.balance.compareTo(request.amount) <= 0) {
+                throw new IllegalStateException("Insufficient funds");
+            }
+            blackhole.consume(balanceWriter.writeValueAsBytes(sender.balance.subtract(request.amount)));
+            blackhole.consume(balanceWriter.writeValueAsBytes(recipient.balance.add(request.amount)));
+            return;
+        }
+        DecimalRequest request = requestReader.readValue(requests[sample]);
+        DecimalAccount sender = accountReader.readValue(senders[sample]);
+        DecimalAccount recipient = accountReader.readValue(recipients[sample]);
+        if (sender.balance.compareTo(request.amount) <= 0) {
+            throw new IllegalStateException("Insufficient funds");
+        }
+        blackhole.consume(balanceWriter.writeValueAsBytes(sender.balance.subtract(request.amount)));
+        blackhole.consume(balanceWriter.writeValueAsBytes(recipient.balance.add(request.amount)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object accumulate() {
+        if ("cents".equals(representation)) {
+            long total = 0;
+            for (Money amount : moneyAmounts) {
+                total = Math.addExact(total, amount.getCents());
+            }
+            return Money.ofCents(total);
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : decimalAmounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    private static byte[] account(long id, String balance) {
+        return ("{\"id\":" + id + ",\"name\":\"Account " + id + "\",\"email\":\"account" + id + "@test.com\",\"balance\":" + balance + ",\"version\":3}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static class DecimalRequest {
+        public Long senderAccountId;
+        public Long recipientAccountId;
+        public BigDecimal amount;
+    }
+
+    public static class MoneyRequest {
+        public Long senderAccountId;
+        public Long recipientAccountId;
+        public Money amount;
+    }
+
+    public static class DecimalAccount {
+        public Long id;
+        public String name;
+        public String email;
+        public BigDecimal balance;
+        public Long version;
+    }
+
+    public static class MoneyAccount {
+        public Long id;
+        public String name;
+        public String email;
+        public Money balance;
+        public Long version;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.benchmark;
+
+import com.example.TransactionserviceApplication;
+import com.example.client.AccountClient;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The application without its web server, talking to a {@link StubAccountRestTemplate} instead of
+ * account-service, or with its web server on a random port for load over HTTP. Per-transfer INFO
+ * logging is turned off so it does not dominate the measurements.
+ */
+final class ServiceContext {
+    private static final String ACCOUNT_SERVICE_URL = "http://account-service/accounts/";
+
+    private ServiceContext() {
+    }
+
+    /**
+     * @param properties {@code name=value} pairs overriding {@code application.properties}
+     */
+    static ConfigurableApplicationContext start(int accounts, String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TransactionserviceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args(ACCOUNT_SERVICE_URL, properties));
+        StubAccountRestTemplate restTemplate = new StubAccountRestTemplate(ACCOUNT_SERVICE_URL);
+        restTemplate.addAccounts(accounts, new BigDecimal("1000000000000.00"));
+        ReflectionTestUtils.setField(context.getBean(AccountClient.class), "restTemplate", restTemplate);
+        return context;
+    }
+
+    /**
+     * Starts the application with Tomcat on a random port, see {@link #port}.
+     */
+    static ConfigurableApplicationContext startServer(String accountServiceUrl, String... properties) {
+        String[] serverProperties = Arrays.copyOf(properties, properties.length + 1);
+        serverProperties[properties.length] = "server.port=0";
+        return new SpringApplicationBuilder(TransactionserviceApplication.class)
+                .run(args(accountServiceUrl, serverProperties));
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static String[] args(String accountServiceUrl, String... properties) {
+        List<String> args = new ArrayList<>(List.of("--spring.main.banner-mode=off", "--logging.level.root=WARN",
+                "--account.service.url=" + accountServiceUrl));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return args.toArray(String[]::new);
+    }
+}
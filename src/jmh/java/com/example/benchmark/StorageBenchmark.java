@@ -0,0 +1,92 @@
+package com.example.benchmark;
+
+import com.example.entity.Transaction;
+import com.example.service.TransactionRecorder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of the in-memory database against the durable {@code file} profile, for single
+ * transfers ({@code record}, also with 8 threads) and for batches of 100 transfers
+ * ({@code recordBatch}), each with its activity totals as transfers are recorded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"mem", "file"})
+    private String storage;
+
+    private Path dataDirectory;
+    private ConfigurableApplicationContext context;
+    private TransactionRecorder transactionRecorder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("transactionservice-storage");
+        context = storage.equals("file")
+                ? ServiceContext.start(ACCOUNTS, "spring.profiles.active=file", "transaction.data.directory=" + dataDirectory)
+                : ServiceContext.start(ACCOUNTS);
+        transactionRecorder = context.getBean(TransactionRecorder.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDirectory);
+    }
+
+    @State(Scope.Thread)
+    public static class Transactions {
+        private final SplittableRandom random = new SplittableRandom();
+
+        Transaction next() {
+            Transaction transaction = new Transaction();
+            transaction.setSenderAccountId(random.nextLong(ACCOUNTS) + 1);
+            transaction.setRecipientAccountId(random.nextLong(ACCOUNTS) + 1);
+            transaction.setAmount(BigDecimal.valueOf(random.nextLong(1, 100_000), 2));
+            transaction.setTimestamp(OffsetDateTime.now());
+            return transaction;
+        }
+
+        List<Transaction> next(int count) {
+            List<Transaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                transactions.add(next());
+            }
+            return transactions;
+        }
+    }
+
+    @Benchmark
+    public Transaction record(Transactions transactions) {
+        return transactionRecorder.save(transactions.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction recordContended(Transactions transactions) {
+        return transactionRecorder.save(transactions.next());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Transaction> recordBatch(Transactions transactions) {
+        return transactionRecorder.saveAll(transactions.next(BATCH_SIZE));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.benchmark;
+
+import com.example.dto.AccountResponse;
+import com.example.dto.BalanceAdjustment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for the account-service calls {@code AccountClient} makes, so the transfer
+ * benchmarks measure this service rather than the network. Answers the same way the real service
+ * does: a fresh {@link AccountResponse} per read, version bumped on every write, and 412 when an
+ * adjustment's {@code If-Match} no longer holds.
+ */
+class StubAccountRestTemplate extends RestTemplate {
+    private final String url;
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    StubAccountRestTemplate(String url) {
+        this.url = url;
+    }
+
+    void addAccounts(int count, BigDecimal balance) {
+        for (long id = 1; id <= count; id++) {
+            accounts.put(id, new Account(balance, 0));
+        }
+    }
+
+    @Override
+    public <T> T getForObject(String requestUrl, Class<T> responseType, Object... uriVariables) {
+        long id = Long.parseLong(requestUrl.substring(url.length()));
+        return responseType.cast(response(id, accounts.get(id)));
+    }
+
+    @Override
+    public void put(String requestUrl, Object request, Object... uriVariables) {
+        long id = accountId(requestUrl);
+        accounts.computeIfPresent(id, (key, account) -> new Account((BigDecimal) request, account.version() + 1));
+    }
+
+    @Override
+    public <T> T postForObject(String requestUrl, Object request, Class<T> responseType, Object... uriVariables) {
+        long id = accountId(requestUrl);
+        HttpEntity<?> entity = (HttpEntity<?>) request;
+        BigDecimal delta = ((BalanceAdjustment) entity.getBody()).getDelta();
+        String ifMatch = entity.getHeaders().getIfMatch().isEmpty() ? null : entity.getHeaders().getIfMatch().get(0);
+        Account[] result = new Account[1];
+        accounts.computeIfPresent(id, (key, account) -> {
+            if (ifMatch != null && !ifMatch.equals("\"" + account.version() + "\"")) {
+                return account;
+            }
+            result[0] = new Account(account.balance().add(delta), account.version() + 1);
+            return result[0];
+        });
+        if (result[0] == null) {
+            throw HttpClientErrorException.create(HttpStatus.PRECONDITION_FAILED, "Precondition Failed", null, null, null);
+        }
+        return responseType.cast(response(id, result[0]));
+    }
+
+    private long accountId(String requestUrl) {
+        return Long.parseLong(requestUrl.substring(url.length(), requestUrl.indexOf('/', url.length())));
+    }
+
+    private static AccountResponse response(long id, Account account) {
+        if (account == null) {
+            return null;
+        }
+        AccountResponse response = new AccountResponse();
+        response.setId(id);
+        response.setName("Account " + id);
+        response.setEmail("account" + id + "@test.com");
+        response.setBalance(account.balance());
+        response.setVersion(account.version());
+        return response;
+    }
+
+    private record Account(BigDecimal balance, long version) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.benchmark;
+
+import com.example.entity.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of {@code Transaction} rows on in-memory H2 for each id strategy, replaying the
+ * statements Hibernate issues: IDENTITY inserts one row per round trip and reads the generated key
+ * back, the pooled sequence fetches one block of 50 ids and inserts in JDBC batches of 50, snowflake
+ * batches the same way without asking the database for ids at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(TransactionIdBenchmark.ROWS)
+public class TransactionIdBenchmark {
+    static final int ROWS = 1000;
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"identity", "sequence", "snowflake"})
+    private String strategy;
+
+    private Connection connection;
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:idbenchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists identity_transaction (id bigint generated by default as identity primary key, "
+                    + "sender_account_id bigint, recipient_account_id bigint, amount numeric(38,2), timestamp timestamp(6) with time zone)");
+            statement.execute("create table if not exists transaction (id bigint not null primary key, "
+                    + "sender_account_id bigint, recipient_account_id bigint, amount numeric(38,2), timestamp timestamp(6) with time zone)");
+            statement.execute("create sequence if not exists transaction_seq start with 1 increment by " + BATCH_SIZE);
+        }
+        connection.commit();
+        snowflakeIdGenerator = new SnowflakeIdGenerator(0);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("truncate table identity_transaction");
+            statement.execute("truncate table transaction");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        switch (strategy) {
+            case "identity" -> insertWithIdentity();
+            case "sequence" -> insertBatched(true);
+            default -> insertBatched(false);
+        }
+        connection.commit();
+    }
+
+    private void insertWithIdentity() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into identity_transaction (sender_account_id, recipient_account_id, amount, timestamp) values (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bind(insert, 1, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+    }
+
+    private void insertBatched(boolean useSequence) throws SQLException {
+        try (PreparedStatement nextBlock = connection.prepareStatement("select next value for transaction_seq");
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into transaction (id, sender_account_id, recipient_account_id, amount, timestamp) values (?, ?, ?, ?, ?)")) {
+            long nextId = 0;
+            long blockEnd = 0;
+            for (int i = 0; i < ROWS; i++) {
+                long id;
+                if (useSequence) {
+                    if (nextId == blockEnd) {
+                        try (ResultSet block = nextBlock.executeQuery()) {
+                            block.next();
+                            blockEnd = block.getLong(1);
+                            nextId = blockEnd - BATCH_SIZE;
+                        }
+                    }
+                    id = nextId++;
+                } else {
+                    id = snowflakeIdGenerator.nextId();
+                }
+                insert.setLong(1, id);
+                bind(insert, 2, i);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void bind(PreparedStatement insert, int firstIndex, int row) throws SQLException {
+        insert.setLong(firstIndex, row % 100);
+        insert.setLong(firstIndex + 1, 100 + row % 100);
+        insert.setBigDecimal(firstIndex + 2, BigDecimal.valueOf(row, 2));
+        insert.setObject(firstIndex + 3, OffsetDateTime.now());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.benchmark;
+
+import com.example.dto.TransactionRequest;
+import com.example.entity.Transaction;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson reading a {@code POST /transactions/transfer} body into {@link TransactionRequest} and
+ * writing the {@link Transaction} response, with the mapper configured as Spring Boot configures it.
+ * The {@code Contended} variants share the reader and writer between 8 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TransactionJsonBenchmark {
+    private static final int SAMPLES = 64;
+
+    private ObjectReader requestReader;
+    private ObjectWriter transactionWriter;
+    private final byte[][] requests = new byte[SAMPLES][];
+    private final Transaction[] transactions = new Transaction[SAMPLES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        requestReader = objectMapper.readerFor(TransactionRequest.class);
+        transactionWriter = objectMapper.writerFor(Transaction.class);
+        OffsetDateTime timestamp = OffsetDateTime.parse("2024-05-01T12:00:00.123456+02:00");
+        for (int i = 0; i < SAMPLES; i++) {
+            requests[i] = ("{\"senderAccountId\":" + (i + 1) + ",\"recipientAccountId\":" + (i + 2) + ",\"amount\":" + (i + 1) + "." + (i % 100) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            Transaction transaction = new Transaction();
+            transaction.setId(1_000_000L + i);
+            transaction.setSenderAccountId(i + 1L);
+            transaction.setRecipientAccountId(i + 2L);
+            transaction.setAmount(BigDecimal.valueOf(i * 137L + 1, 2));
+            transaction.setTimestamp(timestamp.plusSeconds(i));
+            transactions[i] = transaction;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SAMPLES - 1);
+        }
+    }
+
+    @Benchmark
+    public TransactionRequest readRequest(Cursor cursor) throws IOException {
+        return requestReader.readValue(requests[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TransactionRequest readRequestContended(Cursor cursor) throws IOException {
+        return requestReader.readValue(requests[cursor.next()]);
+    }
+
+    @Benchmark
+    public byte[] writeTransaction(Cursor cursor) throws IOException {
+        return transactionWriter.writeValueAsBytes(transactions[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] writeTransactionContended(Cursor cursor) throws IOException {
+        return transactionWriter.writeValueAsBytes(transactions[cursor.next()]);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of reading one page of an account's history halfway through it on in-memory H2, as the
+ * table grows. {@code keyset} replays the two index range scans behind {@code GET /transactions},
+ * {@code offset} is the {@code sender = ? or recipient = ? ... offset ?} query it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TransactionQueryBenchmark {
+    private static final int ACCOUNTS = 1000;
+    private static final int PAGE_SIZE = 100;
+    // H2 hands back the previous result when a statement is re-run with the same parameters,
+    // so every invocation reads a different account
+    private static final int SAMPLED_ACCOUNTS = 64;
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime END = OffsetDateTime.of(9999, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC);
+    private static final String KEYSET = "select id, sender_account_id, recipient_account_id, amount, timestamp from transaction "
+            + "where %1$s = ? and timestamp >= ? and (timestamp > ? or id > ?) and timestamp < ? order by %1$s, timestamp, id fetch first ? rows only";
+
+    @Param({"100000", "1000000", "3000000"})
+    private int rows;
+
+    @Param({"keyset", "offset"})
+    private String pagination;
+
+    private Connection connection;
+    private PreparedStatement sent;
+    private PreparedStatement received;
+    private PreparedStatement offset;
+    private final long[] accountIds = new long[SAMPLED_ACCOUNTS];
+    private final OffsetDateTime[] cursorTimestamps = new OffsetDateTime[SAMPLED_ACCOUNTS];
+    private final long[] cursorIds = new long[SAMPLED_ACCOUNTS];
+    private final int[] cursorOffsets = new int[SAMPLED_ACCOUNTS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:querybenchmark" + rows, "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table transaction (id bigint not null primary key, sender_account_id bigint, "
+                    + "recipient_account_id bigint, amount numeric(38,2), timestamp timestamp(6) with time zone, idempotency_key varchar(100) unique)");
+            statement.execute("create index idx_transaction_sender_timestamp on transaction (sender_account_id, timestamp, id)");
+            statement.execute("create index idx_transaction_recipient_timestamp on transaction (recipient_account_id, timestamp, id)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into transaction (id, sender_account_id, recipient_account_id, amount, timestamp) values (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setLong(1, i);
+                insert.setLong(2, i % ACCOUNTS);
+                insert.setLong(3, (i * 7L + 1) % ACCOUNTS);
+                insert.setBigDecimal(4, BigDecimal.valueOf(i % 10_000, 2));
+                insert.setObject(5, START.plusSeconds(i));
+                insert.addBatch();
+                if (i % 1000 == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+
+        sent = connection.prepareStatement(KEYSET.formatted("sender_account_id"));
+        received = connection.prepareStatement(KEYSET.formatted("recipient_account_id"));
+        offset = connection.prepareStatement("select id, sender_account_id, recipient_account_id, amount, timestamp from transaction "
+                + "where sender_account_id = ? or recipient_account_id = ? order by timestamp, id offset ? rows fetch next ? rows only");
+
+        // position the cursors halfway through the history of each sampled account
+        try (PreparedStatement count = connection.prepareStatement(
+                "select count(*) from transaction where sender_account_id = ? or recipient_account_id = ?")) {
+            for (int i = 0; i < SAMPLED_ACCOUNTS; i++) {
+                accountIds[i] = i * (ACCOUNTS / SAMPLED_ACCOUNTS);
+                count.setLong(1, accountIds[i]);
+                count.setLong(2, accountIds[i]);
+                try (ResultSet resultSet = count.executeQuery()) {
+                    resultSet.next();
+                    cursorOffsets[i] = resultSet.getInt(1) / 2;
+                }
+                offset.setLong(1, accountIds[i]);
+                offset.setLong(2, accountIds[i]);
+                offset.setInt(3, cursorOffsets[i] - 1);
+                offset.setInt(4, 1);
+                try (ResultSet resultSet = offset.executeQuery()) {
+                    resultSet.next();
+                    cursorIds[i] = resultSet.getLong(1);
+                    cursorTimestamps[i] = resultSet.getObject(5, OffsetDateTime.class);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void page(Blackhole blackhole) throws SQLException {
+        int account = next++ % SAMPLED_ACCOUNTS;
+        if ("offset".equals(pagination)) {
+            offset.setLong(1, accountIds[account]);
+            offset.setLong(2, accountIds[account]);
+            offset.setInt(3, cursorOffsets[account]);
+            offset.setInt(4, PAGE_SIZE);
+            consume(offset, PAGE_SIZE, blackhole);
+            return;
+        }
+        bindKeyset(sent, account);
+        bindKeyset(received, account);
+        // the service merges both sides lazily; reading both to the page size bounds its cost from above
+        consume(sent, PAGE_SIZE + 1, blackhole);
+        consume(received, PAGE_SIZE + 1, blackhole);
+    }
+
+    private void bindKeyset(PreparedStatement statement, int account) throws SQLException {
+        statement.setLong(1, accountIds[account]);
+        statement.setObject(2, cursorTimestamps[account]);
+        statement.setObject(3, cursorTimestamps[account]);
+        statement.setLong(4, cursorIds[account]);
+        statement.setObject(5, END);
+        statement.setInt(6, PAGE_SIZE + 1);
+    }
+
+    private static void consume(PreparedStatement statement, int limit, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            for (int i = 0; i < limit && resultSet.next(); i++) {
+                blackhole.consume(resultSet.getLong(1));
+                blackhole.consume(resultSet.getBigDecimal(4));
+                blackhole.consume(resultSet.getObject(5, OffsetDateTime.class));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.benchmark;
+
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import com.example.service.TransactionRecorder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting one transaction on H2: {@code save} is the bare {@code TransactionRepository.save},
+ * {@code record} adds the daily activity totals in the same database transaction as transfers do,
+ * and the {@code Contended} variants run 8 threads sharing the id sequence and the connection pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransactionRepositoryBenchmark {
+    private static final int ACCOUNTS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+    private TransactionRecorder transactionRecorder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = ServiceContext.start(ACCOUNTS);
+        transactionRepository = context.getBean(TransactionRepository.class);
+        transactionRecorder = context.getBean(TransactionRecorder.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Transactions {
+        private final SplittableRandom random = new SplittableRandom();
+
+        Transaction next() {
+            Transaction transaction = new Transaction();
+            transaction.setSenderAccountId(random.nextLong(ACCOUNTS) + 1);
+            transaction.setRecipientAccountId(random.nextLong(ACCOUNTS) + 1);
+            transaction.setAmount(BigDecimal.valueOf(random.nextLong(1, 100_000), 2));
+            transaction.setTimestamp(OffsetDateTime.now());
+            return transaction;
+        }
+    }
+
+    @Benchmark
+    public Transaction save(Transactions transactions) {
+        return transactionRepository.save(transactions.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction saveContended(Transactions transactions) {
+        return transactionRepository.save(transactions.next());
+    }
+
+    @Benchmark
+    public Transaction record(Transactions transactions) {
+        return transactionRecorder.save(transactions.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction recordContended(Transactions transactions) {
+        return transactionRecorder.save(transactions.next());
+    }
+}
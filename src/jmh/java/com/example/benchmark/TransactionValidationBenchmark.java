@@ -0,0 +1,61 @@
+package com.example.benchmark;
+
+import com.example.dto.TransactionRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of {@link TransactionRequest}, as {@code @Valid} runs it in the controller:
+ * {@code valid} is the common case, {@code invalid} breaks all three constraints and pays for
+ * interpolating their messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TransactionValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private TransactionRequest validRequest;
+    private TransactionRequest invalidRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validRequest = new TransactionRequest();
+        validRequest.setSenderAccountId(1L);
+        validRequest.setRecipientAccountId(2L);
+        validRequest.setAmount(new BigDecimal("100.25"));
+        invalidRequest = new TransactionRequest();
+        invalidRequest.setAmount(new BigDecimal("-1"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransactionRequest>> valid() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Set<ConstraintViolation<TransactionRequest>> validContended() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransactionRequest>> invalid() {
+        return validator.validate(invalidRequest);
+    }
+}
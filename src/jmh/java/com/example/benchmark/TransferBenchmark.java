@@ -0,0 +1,86 @@
+package com.example.benchmark;
+
+import com.example.client.AccountBusyException;
+import com.example.entity.Transaction;
+import com.example.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code TransactionService.transfer}: account reads and balance writes against
+ * {@link StubAccountRestTemplate}, then the insert of the transaction and its activity totals on
+ * H2. {@code transfer} runs alone, {@code transferSpread} runs 8 threads over 10,000 accounts, and
+ * {@code transferHot} runs 8 threads over 4 accounts, so every transfer contends on account locks
+ * (absolute) or version conflicts (delta).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransferBenchmark {
+    private static final int SPREAD_ACCOUNTS = 10_000;
+    private static final int HOT_ACCOUNTS = 4;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"absolute", "delta"})
+    private String balanceUpdates;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = ServiceContext.start(SPREAD_ACCOUNTS, "account.service.balance-updates=" + balanceUpdates);
+        transactionService = context.getBean(TransactionService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+        private final SplittableRandom random = new SplittableRandom();
+
+        long pick(int accounts) {
+            return random.nextLong(accounts) + 1;
+        }
+
+        long pickOther(int accounts, long accountId) {
+            return (accountId + random.nextLong(accounts - 1)) % accounts + 1;
+        }
+    }
+
+    @Benchmark
+    public Transaction transfer(Accounts accounts) {
+        return transfer(accounts, SPREAD_ACCOUNTS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction transferSpread(Accounts accounts) {
+        return transfer(accounts, SPREAD_ACCOUNTS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction transferHot(Accounts accounts) {
+        return transfer(accounts, HOT_ACCOUNTS);
+    }
+
+    private Transaction transfer(Accounts accounts, int count) {
+        long sender = accounts.pick(count);
+        long recipient = accounts.pickOther(count, sender);
+        try {
+            return transactionService.transfer(sender, recipient, AMOUNT);
+        } catch (AccountBusyException e) {
+            // a delta-mode debit that lost every retry, answered with 503 in production
+            return null;
+        }
+    }
+}
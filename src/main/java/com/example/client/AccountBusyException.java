@@ -0,0 +1,7 @@
+package com.example.client;
+
+public class AccountBusyException extends RuntimeException {
+    public AccountBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.client;
+
+import com.example.dto.AccountResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Bounded snapshot cache of account-service accounts. Snapshots are handed out as copies,
+ * so callers may modify them freely; the cache only changes through {@link #put},
+ * {@link #updateBalance} and {@link #invalidate}.
+ */
+@Component
+public class AccountCache implements MeterBinder {
+
+    @Value("${account.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${account.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${account.cache.ttl:5s}")
+    private Duration ttl;
+
+    @Value("${account.cache.cached-balance-reads:false}")
+    private boolean cachedBalanceReads;
+
+    private Cache<Long, AccountResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Whether balance checks may be answered from the cache instead of account-service.
+     */
+    public boolean isCachedBalanceReads() {
+        return cache != null && cachedBalanceReads;
+    }
+
+    public AccountResponse get(Long accountId) {
+        if (cache == null) {
+            return null;
+        }
+        AccountResponse account = cache.getIfPresent(accountId);
+        return account == null ? null : copy(account);
+    }
+
+    public void put(Long accountId, AccountResponse account) {
+        if (cache != null) {
+            cache.put(accountId, copy(account));
+        }
+    }
+
+    public void updateBalance(Long accountId, BigDecimal balance) {
+        if (cache != null) {
+            cache.asMap().computeIfPresent(accountId, (id, account) -> {
+                AccountResponse updated = copy(account);
+                updated.setBalance(balance);
+                return updated;
+            });
+        }
+    }
+
+    public void invalidate(Long accountId) {
+        if (cache != null) {
+            cache.invalidate(accountId);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "accounts");
+        }
+    }
+
+    private static AccountResponse copy(AccountResponse account) {
+        AccountResponse copy = new AccountResponse();
+        copy.setId(account.getId());
+        copy.setName(account.getName());
+        copy.setEmail(account.getEmail());
+        copy.setBalance(account.getBalance());
+        copy.setVersion(account.getVersion());
+        return copy;
+    }
+}
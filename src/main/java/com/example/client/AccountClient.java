@@ -0,0 +1,346 @@
+package com.example.client;
+
+import com.example.dto.AccountResponse;
+import com.example.dto.BalanceAdjustment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Component
+public class AccountClient implements MeterBinder {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private MissingAccounts missingAccounts;
+
+    @Autowired
+    private AccountServiceGuard accountServiceGuard;
+
+    @Autowired
+    @Qualifier("accountExecutor")
+    private ExecutorService accountExecutor;
+
+    @Value("${account.service.url}")
+    private String accountServiceUrl;
+
+    @Value("${account.service.concurrent:false}")
+    private boolean concurrent;
+
+    @Value("${account.service.batch-parallelism:32}")
+    private int batchParallelism;
+
+    @Value("${account.service.adjustment.max-attempts:5}")
+    private int adjustmentMaxAttempts = 5;
+
+    @Value("${account.service.adjustment.backoff:20ms}")
+    private Duration adjustmentBackoff = Duration.ofMillis(20);
+
+    private volatile Timer[][] requestTimers;
+
+    /**
+     * Returns the account, or {@code null} when account-service answers 404 or an empty body,
+     * which is remembered in {@link MissingAccounts}.
+     * The snapshot cache is only consulted when cached balance reads are allowed, but every
+     * fetched account refreshes it.
+     */
+    public AccountResponse getAccount(Long accountId) {
+        if (accountCache.isCachedBalanceReads()) {
+            AccountResponse cached = accountCache.get(accountId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        AccountResponse account;
+        try {
+            account = timed(Operation.GET, () -> restTemplate.getForObject(accountServiceUrl + accountId, AccountResponse.class));
+        } catch (HttpClientErrorException.NotFound e) {
+            accountCache.invalidate(accountId);
+            missingAccounts.add(accountId);
+            return null;
+        }
+
+        if (account == null) {
+            accountCache.invalidate(accountId);
+            missingAccounts.add(accountId);
+        } else {
+            accountCache.put(accountId, account);
+            missingAccounts.remove(accountId);
+        }
+        return account;
+    }
+
+    public void updateBalance(Long accountId, BigDecimal balance) {
+        try {
+            timed(Operation.PUT, () -> {
+                restTemplate.put(accountServiceUrl + accountId + "/balance", balance);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // the write may or may not have been applied, so the snapshot can no longer be trusted
+            accountCache.invalidate(accountId);
+            throw e;
+        }
+        accountCache.updateBalance(accountId, balance);
+    }
+
+    /**
+     * Applies a signed delta through {@code POST {id}/balance/adjustments}. With an expected
+     * version the adjustment only applies while the account is still at that version, and
+     * {@code null} is returned on a version conflict. account-service deduplicates on the
+     * idempotency key, so I/O failures are retried with the same key.
+     */
+    public AccountResponse adjustBalance(Long accountId, BigDecimal delta, Long expectedVersion, String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", idempotencyKey);
+        if (expectedVersion != null) {
+            headers.setIfMatch("\"" + expectedVersion + "\"");
+        }
+        HttpEntity<BalanceAdjustment> request = new HttpEntity<>(new BalanceAdjustment(delta), headers);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                AccountResponse account = timed(Operation.ADJUST, () -> restTemplate.postForObject(
+                        accountServiceUrl + accountId + "/balance/adjustments", request, AccountResponse.class));
+                if (account == null) {
+                    accountCache.invalidate(accountId);
+                } else {
+                    accountCache.put(accountId, account);
+                }
+                return account;
+            } catch (HttpClientErrorException e) {
+                accountCache.invalidate(accountId);
+                if (e.getStatusCode() == HttpStatus.PRECONDITION_FAILED) {
+                    return null;
+                }
+                throw e;
+            } catch (ResourceAccessException e) {
+                accountCache.invalidate(accountId);
+                if (attempt >= adjustmentMaxAttempts) {
+                    throw e;
+                }
+                Backoff.pause(adjustmentBackoff, attempt);
+            }
+        }
+    }
+
+    /**
+     * Looks up the accounts in the given order. Missing accounts are returned as {@code null}.
+     * In sequential mode the lookups stop at the first missing account, in concurrent mode
+     * all of them are issued at once and the first failure in list order is rethrown.
+     */
+    public List<AccountResponse> getAccounts(List<Long> accountIds) {
+        if (concurrent) {
+            List<CompletableFuture<AccountResponse>> futures = accountIds.stream()
+                    .map(id -> supplyAsync(() -> getAccount(id)))
+                    .toList();
+            return joinAll(futures);
+        }
+
+        AccountResponse[] accounts = new AccountResponse[accountIds.size()];
+        for (int i = 0; i < accountIds.size(); i++) {
+            accounts[i] = getAccount(accountIds.get(i));
+            if (accounts[i] == null) {
+                break;
+            }
+        }
+        return Arrays.asList(accounts);
+    }
+
+    /**
+     * Writes the balances one after the other in the given order, in concurrent mode too, so a
+     * failed write leaves the later accounts untouched: a transfer whose debit fails never credits
+     * the recipient.
+     */
+    public void updateBalances(List<BalanceUpdate> updates) {
+        for (BalanceUpdate update : updates) {
+            updateBalance(update.accountId(), update.balance());
+        }
+    }
+
+    /**
+     * Looks up every distinct account with at most {@code account.service.batch-parallelism}
+     * requests in flight. Missing accounts are left out of the result.
+     */
+    public Map<Long, AccountResponse> getAccountsById(Collection<Long> accountIds) {
+        Map<Long, CompletableFuture<AccountResponse>> futures = submitBounded(accountIds, this::getAccount);
+
+        Map<Long, AccountResponse> accounts = new HashMap<>();
+        List<AccountResponse> results = joinAll(new ArrayList<>(futures.values()));
+        int i = 0;
+        for (Long accountId : futures.keySet()) {
+            AccountResponse account = results.get(i++);
+            if (account != null) {
+                accounts.put(accountId, account);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Issues the balance updates with bounded parallelism and returns the failures by account
+     * instead of stopping at the first one.
+     */
+    public Map<Long, RuntimeException> updateBalancesById(Map<Long, BigDecimal> balances) {
+        Map<Long, CompletableFuture<Void>> futures = submitBounded(balances.keySet(), accountId -> {
+            updateBalance(accountId, balances.get(accountId));
+            return null;
+        });
+
+        return collectFailures(futures);
+    }
+
+    /**
+     * Applies the deltas with bounded parallelism. Accounts listed in {@code expectedVersions}
+     * are adjusted conditionally and a version conflict is reported as a failure.
+     */
+    public Map<Long, RuntimeException> adjustBalancesById(Map<Long, BigDecimal> deltas, Map<Long, Long> expectedVersions,
+                                                          String idempotencyKeyPrefix) {
+        Map<Long, CompletableFuture<Void>> futures = submitBounded(deltas.keySet(), accountId -> {
+            if (adjustBalance(accountId, deltas.get(accountId), expectedVersions.get(accountId), idempotencyKeyPrefix + ":" + accountId) == null) {
+                throw new AccountBusyException("Account " + accountId + " was modified concurrently");
+            }
+            return null;
+        });
+
+        return collectFailures(futures);
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Timer[][] timers = new Timer[Operation.values().length][Outcome.values().length];
+        for (Operation operation : Operation.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                timers[operation.ordinal()][outcome.ordinal()] = Timer.builder("account.client.requests")
+                        .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .description("Requests to account-service")
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+        }
+        requestTimers = timers;
+    }
+
+    /**
+     * Runs one account-service request, timing it by operation and outcome and reporting it to the
+     * {@link AccountServiceGuard}. A 4xx answer such as 404 or 412 counts as a client error and
+     * leaves the service looking healthy, anything else thrown is an error.
+     */
+    private <T> T timed(Operation operation, Supplier<T> request) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            T result = request.get();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (HttpClientErrorException e) {
+            outcome = Outcome.CLIENT_ERROR;
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            accountServiceGuard.record(outcome == Outcome.ERROR, nanos);
+            Timer[][] timers = requestTimers;
+            if (timers != null) {
+                timers[operation.ordinal()][outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, accountExecutor);
+    }
+
+    private <T> Map<Long, CompletableFuture<T>> submitBounded(Collection<Long> accountIds, Function<Long, T> call) {
+        Semaphore permits = new Semaphore(Math.max(1, batchParallelism));
+        Map<Long, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (Long accountId : new LinkedHashSet<>(accountIds)) {
+            futures.put(accountId, supplyAsync(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    return call.apply(accountId);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        return futures;
+    }
+
+    private static Map<Long, RuntimeException> collectFailures(Map<Long, CompletableFuture<Void>> futures) {
+        Map<Long, RuntimeException> failures = new HashMap<>();
+        futures.forEach((accountId, future) -> {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                failures.put(accountId, e.getCause() instanceof RuntimeException cause ? cause : e);
+            }
+        });
+        return failures;
+    }
+
+    private enum Operation {
+        GET, PUT, ADJUST
+    }
+
+    private enum Outcome {
+        SUCCESS, CLIENT_ERROR, ERROR
+    }
+
+    private static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+}
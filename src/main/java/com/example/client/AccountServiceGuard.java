@@ -0,0 +1,257 @@
+package com.example.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for work that calls account-service: a circuit breaker over the outcome of the
+ * most recent calls, and a concurrency limit that grows by one per limit's worth of healthy calls and
+ * shrinks by {@code backoff-ratio} on every failed or slow one, never above the {@code max-limit}
+ * bulkhead. While half open, at most {@code half-open-trials} units of work run at once, and the
+ * circuit closes after that many successful calls; a trial released without calling account-service
+ * makes room for the next one. Work that is not
+ * admitted fails at once with {@link AccountServiceUnavailableException} instead of tying up a
+ * request thread; admitted work is never cut off halfway, so a rejection cannot leave a transfer
+ * half applied.
+ */
+@Component
+public class AccountServiceGuard implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(AccountServiceGuard.class);
+    private static final Permit NO_PERMIT = () -> {
+    };
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Value("${account.service.guard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${account.service.guard.failure-rate-threshold:50}")
+    private int failureRateThreshold = 50;
+
+    @Value("${account.service.guard.sliding-window-size:50}")
+    private int slidingWindowSize = 50;
+
+    @Value("${account.service.guard.minimum-calls:20}")
+    private int minimumCalls = 20;
+
+    @Value("${account.service.guard.slow-call-duration:1s}")
+    private Duration slowCallDuration = Duration.ofSeconds(1);
+
+    @Value("${account.service.guard.open-duration:10s}")
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    @Value("${account.service.guard.half-open-trials:5}")
+    private int halfOpenTrials = 5;
+
+    @Value("${account.service.guard.initial-limit:20}")
+    private int initialLimit = 20;
+
+    @Value("${account.service.guard.min-limit:2}")
+    private int minLimit = 2;
+
+    @Value("${account.service.guard.max-limit:100}")
+    private int maxLimit = 100;
+
+    @Value("${account.service.guard.backoff-ratio:0.9}")
+    private double backoffRatio = 0.9;
+
+    private final LongAdder[] transitions = new LongAdder[State.values().length];
+    private final LongAdder openRejections = new LongAdder();
+    private final LongAdder limitRejections = new LongAdder();
+
+    // guarded by lock, not a monitor, so virtual threads waiting for it unmount instead of pinning a carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state = State.CLOSED;
+    private volatile double limit;
+    private volatile int inFlight;
+    private boolean[] window;
+    private int windowNext;
+    private int windowCalls;
+    private int windowFailures;
+    private long openedAt;
+    private int trialsInFlight;
+    private int trialSuccesses;
+    // tells the trials of the current half-open period from those of an earlier one
+    private int halfOpenPeriod;
+
+    public AccountServiceGuard() {
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = new LongAdder();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        limit = initialLimit;
+        window = new boolean[slidingWindowSize];
+    }
+
+    /**
+     * Admits one unit of work, to be released by closing the permit once its account-service calls are done.
+     *
+     * @throws AccountServiceUnavailableException if the circuit is open or the concurrency limit is reached
+     */
+    public Permit acquire() {
+        if (!enabled) {
+            return NO_PERMIT;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                    openRejections.increment();
+                    throw new AccountServiceUnavailableException("Account service is unavailable, please retry later");
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && trialsInFlight >= halfOpenTrials) {
+                openRejections.increment();
+                throw new AccountServiceUnavailableException("Account service is recovering, please retry later");
+            }
+            if (inFlight >= (int) limit) {
+                limitRejections.increment();
+                throw new AccountServiceUnavailableException("Too many concurrent requests to account service, please retry later");
+            }
+            inFlight++;
+            if (state == State.HALF_OPEN) {
+                trialsInFlight++;
+                int period = halfOpenPeriod;
+                return () -> release(period);
+            }
+            return () -> release(-1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of one account-service call. Failures and calls slower than
+     * {@code slow-call-duration} count against both the circuit and the concurrency limit.
+     */
+    public void record(boolean failed, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            boolean unhealthy = failed || nanos >= slowCallDuration.toNanos();
+            limit = unhealthy ? Math.max(minLimit, limit * backoffRatio) : Math.min(maxLimit, limit + 1 / limit);
+
+            switch (state) {
+                case CLOSED -> {
+                    if (windowCalls == window.length) {
+                        windowFailures -= window[windowNext] ? 1 : 0;
+                    } else {
+                        windowCalls++;
+                    }
+                    window[windowNext] = unhealthy;
+                    windowFailures += unhealthy ? 1 : 0;
+                    windowNext = (windowNext + 1) % window.length;
+                    if (windowCalls >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCalls) {
+                        logger.warn("{} of the last {} account-service calls failed or were slow, opening the circuit for {}",
+                                windowFailures, windowCalls, openDuration);
+                        transition(State.OPEN);
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (unhealthy) {
+                        logger.warn("Account-service trial call failed, opening the circuit again for {}", openDuration);
+                        transition(State.OPEN);
+                    } else if (++trialSuccesses >= halfOpenTrials) {
+                        logger.info("Account-service recovered, closing the circuit");
+                        transition(State.CLOSED);
+                    }
+                }
+                case OPEN -> {
+                    // late results of calls admitted before the circuit opened
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("account.client.circuit.state", this, guard -> guard.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        for (State target : State.values()) {
+            FunctionCounter.builder("account.client.circuit.transitions", transitions[target.ordinal()], LongAdder::sum)
+                    .tag("state", target.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+                    .description("Circuit breaker transitions into each state")
+                    .register(registry);
+        }
+        FunctionCounter.builder("account.client.rejections", openRejections, LongAdder::sum)
+                .tag("reason", "circuit-open")
+                .description("Work rejected without calling account-service")
+                .register(registry);
+        FunctionCounter.builder("account.client.rejections", limitRejections, LongAdder::sum)
+                .tag("reason", "limit")
+                .description("Work rejected without calling account-service")
+                .register(registry);
+        Gauge.builder("account.client.concurrency.limit", this, AccountServiceGuard::getLimit)
+                .description("Adaptive limit on concurrent work calling account-service")
+                .register(registry);
+        Gauge.builder("account.client.concurrency.in-flight", this, guard -> guard.inFlight)
+                .description("Admitted work calling account-service")
+                .register(registry);
+    }
+
+    private void release(int trialPeriod) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (state == State.HALF_OPEN && trialPeriod == halfOpenPeriod) {
+                trialsInFlight--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transition(State target) {
+        state = target;
+        transitions[target.ordinal()].increment();
+        switch (target) {
+            case OPEN -> openedAt = System.nanoTime();
+            case HALF_OPEN -> {
+                halfOpenPeriod++;
+                trialsInFlight = 0;
+                trialSuccesses = 0;
+            }
+            case CLOSED -> {
+                windowNext = 0;
+                windowCalls = 0;
+                windowFailures = 0;
+            }
+        }
+    }
+
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.client;
+
+public class AccountServiceUnavailableException extends RuntimeException {
+    public AccountServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.client;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class Backoff {
+    private static final long MAX_PAUSE_MILLIS = 1000;
+
+    private Backoff() {
+    }
+
+    /**
+     * Sleeps for a random time of up to {@code base * 2^(attempt - 1)}, capped at one second.
+     *
+     * @throws BackoffInterruptedException if interrupted, with the interrupt flag set again
+     */
+    public static void pause(Duration base, int attempt) {
+        try {
+            Thread.sleep(delay(base, attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackoffInterruptedException(e);
+        }
+    }
+
+    /**
+     * The time {@link #pause} would sleep, in milliseconds, for callers that wait in their own way.
+     */
+    public static long delay(Duration base, int attempt) {
+        long ceiling = Math.min(MAX_PAUSE_MILLIS, base.toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
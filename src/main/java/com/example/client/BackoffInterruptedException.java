@@ -0,0 +1,10 @@
+package com.example.client;
+
+/**
+ * Thrown when a thread is interrupted while waiting to retry; the interrupt flag stays set.
+ */
+public class BackoffInterruptedException extends RuntimeException {
+    public BackoffInterruptedException(InterruptedException cause) {
+        super("Interrupted while waiting to retry, please retry later", cause);
+    }
+}
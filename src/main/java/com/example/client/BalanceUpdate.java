@@ -0,0 +1,6 @@
+package com.example.client;
+
+import java.math.BigDecimal;
+
+public record BalanceUpdate(Long accountId, BigDecimal balance) {
+}
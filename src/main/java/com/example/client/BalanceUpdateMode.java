@@ -0,0 +1,13 @@
+package com.example.client;
+
+public enum BalanceUpdateMode {
+    /**
+     * {@code PUT {id}/balance} with the new absolute balance, serialized by in-process account locks.
+     */
+    ABSOLUTE,
+    /**
+     * {@code POST {id}/balance/adjustments} with a signed delta; debits are conditional on the
+     * account version that was read and retried on conflict.
+     */
+    DELTA
+}
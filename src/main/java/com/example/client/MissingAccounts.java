@@ -0,0 +1,66 @@
+package com.example.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded cache of the account ids account-service recently answered 404 for, so transfers
+ * involving them are rejected without asking again. An account created meanwhile is rejected
+ * for at most {@code ttl}.
+ */
+@Component
+public class MissingAccounts implements MeterBinder {
+
+    @Value("${account.cache.missing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${account.cache.missing.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${account.cache.missing.ttl:30s}")
+    private Duration ttl;
+
+    private Cache<Long, Boolean> cache;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build();
+        }
+    }
+
+    public boolean contains(Long accountId) {
+        return cache != null && accountId != null && cache.getIfPresent(accountId) != null;
+    }
+
+    public void add(Long accountId) {
+        if (cache != null) {
+            cache.put(accountId, Boolean.TRUE);
+        }
+    }
+
+    public void remove(Long accountId) {
+        if (cache != null) {
+            cache.invalidate(accountId);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "missing-accounts");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.config;
+
+import com.example.service.ApplicationEventTransactionEventSink;
+import com.example.service.FileTransactionEventSink;
+import com.example.service.TransactionEventSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "transaction.outbox.sink", havingValue = "bus", matchIfMissing = true)
+    public TransactionEventSink applicationEventTransactionEventSink(ApplicationEventPublisher applicationEventPublisher) {
+        return new ApplicationEventTransactionEventSink(applicationEventPublisher);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "transaction.outbox.sink", havingValue = "file")
+    public FileTransactionEventSink fileTransactionEventSink(
+            @Value("${transaction.outbox.file.path:${java.io.tmpdir}/transactionservice/events.ndjson}") Path path,
+            @Value("${transaction.outbox.file.fsync:false}") boolean fsync,
+            ObjectMapper objectMapper) {
+        return new FileTransactionEventSink(path, fsync, objectMapper);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.config;
+
+import com.example.entity.TransactionIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer transactionIdProperties(@Value("${transaction.id.strategy:sequence}") String strategy,
+                                                                 @Value("${transaction.id.worker-id:0}") long workerId) {
+        return properties -> {
+            properties.put(TransactionIdGenerator.STRATEGY_SETTING, strategy);
+            properties.put(TransactionIdGenerator.WORKER_ID_SETTING, String.valueOf(workerId));
+        };
+    }
+}
@@ -1,14 +1,140 @@
 package com.example.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ToDoubleFunction;
+
 @Configuration
 public class RestTemplateConfig {
 
+    @Value("${account.client.http.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${account.client.http.max-connections-total:200}")
+    private int maxConnectionsTotal;
+
+    @Value("${account.client.http.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    @Value("${account.client.http.read-timeout:2s}")
+    private Duration readTimeout;
+
+    @Value("${account.client.http.connection-request-timeout:1s}")
+    private Duration connectionRequestTimeout;
+
+    @Value("${account.client.http.idle-eviction:30s}")
+    private Duration idleEviction;
+
+    @Value("${account.client.http.time-to-live:5m}")
+    private Duration timeToLive;
+
+    @Value("${account.client.http.version:HTTP_1_1}")
+    private HttpClient.Version httpVersion;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ClientHttpRequestFactory accountRequestFactory) {
+        return new RestTemplate(accountRequestFactory);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "account.client.http.engine", havingValue = "apache", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager accountConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnectionsTotal)
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "account.client.http.engine", havingValue = "apache", matchIfMissing = true)
+    public CloseableHttpClient accountHttpClient(PoolingHttpClientConnectionManager accountConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(accountConnectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "account.client.http.engine", havingValue = "apache", matchIfMissing = true)
+    public ClientHttpRequestFactory accountRequestFactory(CloseableHttpClient accountHttpClient) {
+        return new HttpComponentsClientHttpRequestFactory(accountHttpClient);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "account.client.http.engine", havingValue = "apache", matchIfMissing = true)
+    public MeterBinder accountConnectionPoolMetrics(PoolingHttpClientConnectionManager accountConnectionManager) {
+        return registry -> {
+            registerPoolGauge(registry, accountConnectionManager, "leased", PoolStats::getLeased);
+            registerPoolGauge(registry, accountConnectionManager, "pending", PoolStats::getPending);
+            registerPoolGauge(registry, accountConnectionManager, "available", PoolStats::getAvailable);
+            registerPoolGauge(registry, accountConnectionManager, "max", PoolStats::getMax);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "account.client.http.engine", havingValue = "jdk")
+    public ClientHttpRequestFactory jdkAccountRequestFactory(@Qualifier("accountExecutor") ExecutorService accountExecutor) {
+        // the JDK client keeps its own connection pool, which has no metrics; over http:// HTTP_2 means
+        // an h2c upgrade attempt on every new connection, so it is only worth it for https:// URLs
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(connectTimeout);
+        if (virtualThreads) {
+            // request bodies and responses are handled on virtual threads instead of a new platform thread each
+            builder.executor(accountExecutor);
+        }
+        HttpClient httpClient = builder.build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+
+    private static void registerPoolGauge(MeterRegistry registry,
+                                          PoolingHttpClientConnectionManager connectionManager,
+                                          String state, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("account.client.pool.connections", connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tag("state", state)
+                .description("Connections in the account-service HTTP pool")
+                .register(registry);
     }
 }
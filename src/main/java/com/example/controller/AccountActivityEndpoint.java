@@ -0,0 +1,24 @@
+package com.example.controller;
+
+import com.example.service.AccountActivityProjection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/accountactivity} rebuilds the account activity totals from the transaction history.
+ */
+@Component
+@Endpoint(id = "accountactivity")
+public class AccountActivityEndpoint {
+    @Autowired
+    private AccountActivityProjection accountActivityProjection;
+
+    @WriteOperation
+    public Map<String, Integer> rebuild() {
+        return Map.of("rows", accountActivityProjection.rebuild());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.controller;
+
+import com.example.service.TransactionArchiver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/transactionarchive} archives old transactions now instead of waiting for the next scheduled run.
+ */
+@Component
+@Endpoint(id = "transactionarchive")
+public class TransactionArchiveEndpoint {
+    @Autowired
+    private TransactionArchiver transactionArchiver;
+
+    @WriteOperation
+    public Map<String, Long> archive() {
+        TransactionArchiver.Run run = transactionArchiver.archive();
+        return Map.of("archived", run.archived(), "deleted", run.deleted());
+    }
+}
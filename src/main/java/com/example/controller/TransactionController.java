@@ -1,14 +1,28 @@
 package com.example.controller;
 
+import com.example.dto.AccountActivityResponse;
+import com.example.dto.BatchTransferRequest;
+import com.example.dto.BatchTransferResponse;
+import com.example.dto.ExportFormat;
+import com.example.dto.TransactionPage;
 import com.example.dto.TransactionRequest;
 import com.example.entity.Transaction;
+import com.example.service.AccountActivityProjection;
+import com.example.service.TransactionExporter;
 import com.example.service.TransactionService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 
 @RestController
 @RequestMapping("/transactions")
@@ -16,13 +30,63 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private TransactionExporter transactionExporter;
+
+    @Autowired
+    private AccountActivityProjection accountActivityProjection;
+
     @PostMapping("/transfer")
-    public ResponseEntity<Transaction> transfer (@Valid @RequestBody TransactionRequest transactionRequest) {
+    public ResponseEntity<Transaction> transfer (@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                 @Valid @RequestBody TransactionRequest transactionRequest) {
         try {
-            Transaction transaction = transactionService.transfer(transactionRequest.getSenderAccountId(), transactionRequest.getRecipientAccountId(), transactionRequest.getAmount());
+            Transaction transaction = transactionService.transfer(transactionRequest.getSenderAccountId(), transactionRequest.getRecipientAccountId(), transactionRequest.getAmount(), idempotencyKey);
             return ResponseEntity.ok(transaction);
         } catch (IllegalArgumentException | IllegalStateException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
+
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@Valid @RequestBody BatchTransferRequest batchTransferRequest) {
+        return ResponseEntity.ok(BatchTransferResponse.of(transactionService.transferBatch(batchTransferRequest.getTransfers())));
+    }
+
+    @GetMapping
+    public ResponseEntity<TransactionPage> findTransactions(@RequestParam Long accountId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(transactionService.findTransactions(accountId, from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                                        @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "From must be before to");
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"")
+                .body(outputStream -> transactionExporter.export(from, to, exportFormat, outputStream));
+    }
+
+    @GetMapping("/accounts/{accountId}/activity")
+    public ResponseEntity<AccountActivityResponse> accountActivity(@PathVariable Long accountId,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(accountActivityProjection.get(accountId, date != null ? date : LocalDate.now(ZoneOffset.UTC)));
+    }
 }
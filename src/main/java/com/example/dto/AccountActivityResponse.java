@@ -0,0 +1,22 @@
+package com.example.dto;
+
+import com.example.entity.Money;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+public class AccountActivityResponse {
+    private Long accountId;
+    private LocalDate date;
+    private long sentCount;
+    private Money sentAmount;
+    private long receivedCount;
+    private Money receivedAmount;
+
+    public Money getNetAmount() {
+        return receivedAmount.subtract(sentAmount);
+    }
+}
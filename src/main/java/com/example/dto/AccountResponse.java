@@ -12,4 +12,5 @@ public class AccountResponse {
     private String name;
     private String email;
     private BigDecimal balance;
+    private Long version;
 }
@@ -0,0 +1,22 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchTransferResponse {
+    private int succeeded;
+    private int failed;
+    private List<TransferResult> results;
+
+    public static BatchTransferResponse of(List<TransferResult> results) {
+        BatchTransferResponse response = new BatchTransferResponse();
+        response.setResults(results);
+        response.setSucceeded((int) results.stream().filter(result -> result.getStatus() == TransferStatus.SUCCEEDED).count());
+        response.setFailed(results.size() - response.getSucceeded());
+        return response;
+    }
+}
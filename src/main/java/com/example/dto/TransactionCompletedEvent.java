@@ -0,0 +1,21 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Published once for every completed transfer. Delivery is at least once, so consumers should
+ * ignore an {@code id} they have already seen.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionCompletedEvent {
+    private Long id;
+    private Long senderAccountId;
+    private Long recipientAccountId;
+    private BigDecimal amount;
+    private OffsetDateTime timestamp;
+}
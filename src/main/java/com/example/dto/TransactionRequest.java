@@ -3,10 +3,12 @@ package com.example.dto;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.math.BigDecimal;
 
 @Getter
+@Setter
 public class TransactionRequest {
     @NotNull(message = "Send ID is required")
     private Long senderAccountId;
@@ -14,6 +16,7 @@ public class TransactionRequest {
     @NotNull(message = "Recipient ID is required")
     private Long recipientAccountId;
 
+    @NotNull(message = "Transfer amount is required")
     @Positive(message = "Transfer amount must be greater than zero")
     private BigDecimal amount;
 }
@@ -0,0 +1,20 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only projection of a transaction row, loaded without going through the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionView {
+    private Long id;
+    private Long senderAccountId;
+    private Long recipientAccountId;
+    private BigDecimal amount;
+    private OffsetDateTime timestamp;
+}
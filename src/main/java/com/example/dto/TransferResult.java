@@ -0,0 +1,30 @@
+package com.example.dto;
+
+import com.example.entity.Transaction;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TransferResult {
+    private int index;
+    private TransferStatus status;
+    private Transaction transaction;
+    private String message;
+
+    public static TransferResult succeeded(int index, Transaction transaction) {
+        TransferResult result = new TransferResult();
+        result.setIndex(index);
+        result.setStatus(TransferStatus.SUCCEEDED);
+        result.setTransaction(transaction);
+        return result;
+    }
+
+    public static TransferResult failed(int index, String message) {
+        TransferResult result = new TransferResult();
+        result.setIndex(index);
+        result.setStatus(TransferStatus.FAILED);
+        result.setMessage(message);
+        return result;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.dto;
+
+public enum TransferStatus {
+    SUCCEEDED,
+    FAILED
+}
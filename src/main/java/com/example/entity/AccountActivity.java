@@ -0,0 +1,28 @@
+package com.example.entity;
+
+import jakarta.persistence.Convert;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Transfers sent and received by one account on one day, maintained together with the transactions.
+ */
+@Getter
+@Setter
+@Entity
+public class AccountActivity {
+    @EmbeddedId
+    private AccountActivityId id;
+
+    private long sentCount;
+
+    @Convert(converter = MoneyConverter.class)
+    private Money sentAmount;
+
+    private long receivedCount;
+
+    @Convert(converter = MoneyConverter.class)
+    private Money receivedAmount;
+}
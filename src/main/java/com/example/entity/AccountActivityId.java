@@ -0,0 +1,26 @@
+package com.example.entity;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class AccountActivityId implements Serializable {
+    private Long accountId;
+
+    /**
+     * UTC day of the transactions.
+     */
+    private LocalDate activityDate;
+}
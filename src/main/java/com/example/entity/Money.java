@@ -0,0 +1,199 @@
+package com.example.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money held as a {@code long} number of cents. Arithmetic is exact and throws
+ * {@link ArithmeticException} on overflow; amounts with a non-zero digit past the second decimal
+ * place are rejected instead of rounded, so callers holding such an amount {@link #round} it first.
+ * It is written to JSON as a plain number and stored through {@link MoneyConverter}, so it can
+ * replace a {@code BigDecimal} field without changing the API or the schema.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+    private static final long CENTS_PER_UNIT = 100;
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * @throws ArithmeticException if the amount is not a whole number of cents or does not fit
+     */
+    public static Money of(BigDecimal amount) {
+        try {
+            return ofCents(amount.movePointRight(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount " + amount.toPlainString() + " is not a whole number of cents within range");
+        }
+    }
+
+    /**
+     * Rounds an amount with more than two decimal places half up to whole cents, the way a
+     * {@code numeric(38,2)} column stores it. Other amounts are returned as they are.
+     */
+    public static BigDecimal round(BigDecimal amount) {
+        return amount.scale() > SCALE ? amount.setScale(SCALE, RoundingMode.HALF_UP) : amount;
+    }
+
+    /**
+     * Whether {@link #of} accepts the amount, answered without throwing.
+     */
+    public static boolean isWholeCents(BigDecimal amount) {
+        BigDecimal cents = amount.movePointRight(SCALE);
+        if (cents.scale() > 0 && cents.stripTrailingZeros().scale() > 0) {
+            return false;
+        }
+        return cents.compareTo(MIN_CENTS) >= 0 && cents.compareTo(MAX_CENTS) <= 0;
+    }
+
+    public static Money parse(CharSequence text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        return parse(chars, 0, chars.length);
+    }
+
+    /**
+     * Parses a decimal number such as {@code -12.5} without creating intermediate objects.
+     * Exponent notation is handed to {@link BigDecimal}.
+     *
+     * @throws NumberFormatException if the text is not a number
+     * @throws ArithmeticException if the number is not a whole number of cents or does not fit
+     */
+    public static Money parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative || i < end && chars[i] == '+') {
+            i++;
+        }
+        long cents = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (decimals >= SCALE) {
+                    if (c != '0') {
+                        throw new ArithmeticException("Amount " + new String(chars, offset, length) + " is not a whole number of cents");
+                    }
+                    continue;
+                }
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                cents = Math.addExact(Math.multiplyExact(cents, 10), c - '0');
+            } else if (c == 'e' || c == 'E') {
+                return of(new BigDecimal(chars, offset, length));
+            } else {
+                throw new NumberFormatException("Not a number: " + new String(chars, offset, length));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a number: " + new String(chars, offset, length));
+        }
+        for (int d = Math.max(decimals, 0); d < SCALE; d++) {
+            cents = Math.multiplyExact(cents, 10);
+        }
+        return ofCents(negative ? -cents : cents);
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money add(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money subtract(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * The amount as a plain decimal with two decimal places, e.g. {@code -0.05}.
+     */
+    @Override
+    public String toString() {
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        return (cents < 0 ? "-" : "") + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    static class Serializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeNumber(value.toString());
+        }
+    }
+
+    static class Deserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            try {
+                return parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw context.weirdStringException(parser.getText(), Money.class, e.getMessage());
+            }
+        }
+    }
+}
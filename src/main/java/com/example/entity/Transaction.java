@@ -1,5 +1,6 @@
 package com.example.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,9 +11,14 @@ import java.time.OffsetDateTime;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_transaction_sender_timestamp", columnList = "senderAccountId, timestamp, id"),
+        @Index(name = "idx_transaction_recipient_timestamp", columnList = "recipientAccountId, timestamp, id"),
+        @Index(name = "idx_transaction_timestamp", columnList = "timestamp, id")
+})
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TransactionId
     @Column(name = "id", nullable = false)
     private Long id;
 
@@ -23,4 +29,8 @@ public class Transaction {
     private BigDecimal amount;
 
     private OffsetDateTime timestamp;
+
+    @JsonIgnore
+    @Column(unique = true, length = 100)
+    private String idempotencyKey;
 }
@@ -0,0 +1,29 @@
+package com.example.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Outbox row of a completed transfer, inserted in the database transaction that inserts the
+ * {@link Transaction} and keyed by its id.
+ */
+@Getter
+@Setter
+@Entity
+public class TransactionEvent {
+    @Id
+    private Long id;
+
+    private Long senderAccountId;
+
+    private Long recipientAccountId;
+
+    private BigDecimal amount;
+
+    private OffsetDateTime timestamp;
+}
@@ -0,0 +1,27 @@
+package com.example.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * How far the outbox relay got with one sink: the last event it published and how many in total.
+ */
+@Getter
+@Setter
+@Entity
+public class TransactionEventCheckpoint {
+    @Id
+    @Column(length = 50)
+    private String sink;
+
+    private long lastEventId;
+
+    private long publishedCount;
+
+    private OffsetDateTime updatedAt;
+}
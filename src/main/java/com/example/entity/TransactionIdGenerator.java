@@ -0,0 +1,60 @@
+package com.example.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Id generator for {@link Transaction}, selected by the {@code transaction.id.strategy} setting:
+ * {@code sequence} draws blocks of ids from a database sequence through the pooled optimizer,
+ * {@code snowflake} generates time-ordered ids locally without touching the database.
+ */
+public class TransactionIdGenerator extends SequenceStyleGenerator {
+    public static final String STRATEGY_SETTING = "transaction.id.strategy";
+    public static final String WORKER_ID_SETTING = "transaction.id.worker-id";
+
+    private final TransactionId config;
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    public TransactionIdGenerator(TransactionId config) {
+        this.config = config;
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        params.put(SEQUENCE_PARAM, config.sequenceName());
+        params.put(INCREMENT_PARAM, config.allocationSize());
+        params.put(OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        super.configure(type, params, serviceRegistry);
+
+        Map<String, Object> settings = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+        if ("snowflake".equals(String.valueOf(settings.get(STRATEGY_SETTING)))) {
+            snowflakeIdGenerator = new SnowflakeIdGenerator(Long.parseLong(String.valueOf(settings.getOrDefault(WORKER_ID_SETTING, "0"))));
+        }
+    }
+
+    /**
+     * Write-behind persistence assigns ids before the row is inserted, so those are kept as they are.
+     */
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        if (object instanceof Transaction transaction && transaction.getId() != null) {
+            return transaction.getId();
+        }
+        if (snowflakeIdGenerator != null) {
+            return snowflakeIdGenerator.nextId();
+        }
+        return super.generate(session, object);
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.exceptionhandler;
 
+import com.example.client.AccountBusyException;
+import com.example.client.AccountServiceUnavailableException;
+import com.example.client.BackoffInterruptedException;
+import com.example.service.TransactionMetrics;
+import com.example.service.TransferRejectedException;
+import com.example.service.TransferValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
@@ -12,6 +22,9 @@ import java.util.Map;
 
 @ControllerAdvice
 public class TransactionExceptionHandler {
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationException(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -21,6 +34,14 @@ public class TransactionExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler({MissingServletRequestParameterException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<Map<String, Object>> handleRequestParameterException(Exception ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", HttpStatus.BAD_REQUEST);
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Map<String, Object>> handleResponseStatusException(ResponseStatusException ex) {
         Map<String, Object> response = new HashMap<>();
@@ -29,8 +50,32 @@ public class TransactionExceptionHandler {
         return ResponseEntity.status((ex.getStatusCode())).body(response);
     }
 
+    @ExceptionHandler(TransferRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleTransferRejectedException(TransferRejectedException ex) {
+        HttpStatus status = ex.getRejection() == TransferValidator.Rejection.RATE_LIMITED
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.BAD_REQUEST;
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", status);
+        response.put("message", ex.getMessage());
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+        if (status == HttpStatus.TOO_MANY_REQUESTS) {
+            builder.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return builder.body(response);
+    }
+
+    @ExceptionHandler({AccountBusyException.class, AccountServiceUnavailableException.class, BackoffInterruptedException.class})
+    public ResponseEntity<Map<String, Object>> handleAccountBusyException(RuntimeException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE);
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleException(Exception ex) {
+        transactionMetrics.failed(TransactionMetrics.Failure.UNEXPECTED);
         Map<String, Object> response = new HashMap<>();
         response.put("status", HttpStatus.INTERNAL_SERVER_ERROR);
         response.put("message", "An unexpected error occurred: " + ex.getMessage());
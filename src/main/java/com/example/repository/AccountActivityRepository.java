@@ -0,0 +1,52 @@
+package com.example.repository;
+
+import com.example.entity.AccountActivity;
+import com.example.entity.AccountActivityId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface AccountActivityRepository extends JpaRepository<AccountActivity, AccountActivityId> {
+    List<AccountActivity> findByIdActivityDateGreaterThanEqual(LocalDate activityDate);
+
+    /**
+     * Adds to the day's totals of the account in a single statement, creating the row if needed.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "merge into account_activity a "
+            + "using (values (cast(:accountId as bigint), cast(:activityDate as date), cast(:sentCount as bigint), "
+            + "cast(:sentAmount as numeric(38,2)), cast(:receivedCount as bigint), cast(:receivedAmount as numeric(38,2)))) "
+            + "d (account_id, activity_date, sent_count, sent_amount, received_count, received_amount) "
+            + "on a.account_id = d.account_id and a.activity_date = d.activity_date "
+            + "when matched then update set sent_count = a.sent_count + d.sent_count, sent_amount = a.sent_amount + d.sent_amount, "
+            + "received_count = a.received_count + d.received_count, received_amount = a.received_amount + d.received_amount "
+            + "when not matched then insert (account_id, activity_date, sent_count, sent_amount, received_count, received_amount) "
+            + "values (d.account_id, d.activity_date, d.sent_count, d.sent_amount, d.received_count, d.received_amount)")
+    void add(@Param("accountId") Long accountId, @Param("activityDate") LocalDate activityDate,
+             @Param("sentCount") long sentCount, @Param("sentAmount") BigDecimal sentAmount,
+             @Param("receivedCount") long receivedCount, @Param("receivedAmount") BigDecimal receivedAmount);
+
+    @Modifying
+    @Query("delete from AccountActivity a where a.id.activityDate >= :activityDate")
+    int deleteFrom(@Param("activityDate") LocalDate activityDate);
+
+    /**
+     * Recomputes the rows of the transactions from {@code from} on from the transaction table.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into account_activity "
+            + "(account_id, activity_date, sent_count, sent_amount, received_count, received_amount) "
+            + "select account_id, activity_date, sum(sent_count), sum(sent_amount), sum(received_count), sum(received_amount) from ("
+            + "select sender_account_id account_id, cast(timestamp at time zone 'UTC' as date) activity_date, "
+            + "1 sent_count, amount sent_amount, 0 received_count, 0 received_amount from transaction where timestamp >= :from "
+            + "union all "
+            + "select recipient_account_id, cast(timestamp at time zone 'UTC' as date), 0, 0, 1, amount from transaction where timestamp >= :from"
+            + ") t group by account_id, activity_date")
+    int insertFromTransactions(@Param("from") OffsetDateTime from);
+}
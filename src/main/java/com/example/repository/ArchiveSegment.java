@@ -0,0 +1,330 @@
+package com.example.repository;
+
+import com.example.dto.TransactionView;
+import com.example.entity.Money;
+import com.example.entity.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One immutable file of archived transactions from a single UTC day, in (timestamp, id) order and
+ * stored column by column: each column is delta and varint encoded and deflated on its own. The
+ * first column holds the distinct account ids of the segment, so a lookup for an account that is
+ * not in it reads only that column. Rows are decoded one at a time by a {@link Cursor}, which
+ * holds only the compressed columns in memory.
+ */
+final class ArchiveSegment {
+    private static final int MAGIC = 0x54584152;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+
+    private enum Column {
+        // segments written before idempotency keys were dropped have one more column, which is never read
+        ACCOUNTS, ID, TIMESTAMP, OFFSET, SENDER, RECIPIENT, AMOUNT
+    }
+
+    private final Path path;
+    private final LocalDate day;
+    private final int rows;
+    private final long[] columnPositions;
+    private final int[] columnLengths;
+
+    private ArchiveSegment(Path path, LocalDate day, int rows, long[] columnPositions, int[] columnLengths) {
+        this.path = path;
+        this.day = day;
+        this.rows = rows;
+        this.columnPositions = columnPositions;
+        this.columnLengths = columnLengths;
+    }
+
+    /**
+     * Writes the transactions, which must all be from {@code day}, to a temporary file that is then
+     * moved to {@code path}, so a segment is either complete or absent.
+     */
+    static ArchiveSegment write(Path path, LocalDate day, List<Transaction> transactions) throws IOException {
+        List<Transaction> sorted = new ArrayList<>(transactions);
+        sorted.sort(ArchiveSegment::compare);
+
+        long[] accounts = sorted.stream()
+                .flatMapToLong(transaction -> Arrays.stream(new long[]{transaction.getSenderAccountId(), transaction.getRecipientAccountId()}))
+                .sorted().distinct().toArray();
+        Encoder[] columns = new Encoder[Column.values().length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Encoder();
+        }
+        columns[Column.ACCOUNTS.ordinal()].writeVarLong(accounts.length);
+        long previousAccount = 0;
+        for (long account : accounts) {
+            columns[Column.ACCOUNTS.ordinal()].writeVarLong(account - previousAccount);
+            previousAccount = account;
+        }
+        long previousId = 0;
+        long previousMicros = 0;
+        for (Transaction transaction : sorted) {
+            long micros = micros(transaction.getTimestamp().toInstant());
+            columns[Column.ID.ordinal()].writeZigZag(transaction.getId() - previousId);
+            columns[Column.TIMESTAMP.ordinal()].writeZigZag(micros - previousMicros);
+            columns[Column.OFFSET.ordinal()].writeZigZag(transaction.getTimestamp().getOffset().getTotalSeconds());
+            columns[Column.SENDER.ordinal()].writeVarLong(transaction.getSenderAccountId());
+            columns[Column.RECIPIENT.ordinal()].writeVarLong(transaction.getRecipientAccountId());
+            columns[Column.AMOUNT.ordinal()].writeZigZag(Money.of(transaction.getAmount()).getCents());
+            previousId = transaction.getId();
+            previousMicros = micros;
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] positions = new long[columns.length];
+        int[] lengths = new int[columns.length];
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(day.toEpochDay());
+            out.writeInt(sorted.size());
+            out.writeInt(columns.length);
+            long position = HEADER_SIZE + 4L * columns.length;
+            byte[][] compressed = new byte[columns.length][];
+            for (int i = 0; i < columns.length; i++) {
+                compressed[i] = columns[i].deflate();
+                positions[i] = position;
+                lengths[i] = compressed[i].length;
+                position += lengths[i];
+                out.writeInt(lengths[i]);
+            }
+            for (byte[] column : compressed) {
+                out.write(column);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        return new ArchiveSegment(path, day, sorted.size(), positions, lengths);
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a transaction archive segment: " + path);
+            }
+            LocalDate day = LocalDate.ofEpochDay(header.getLong());
+            int rows = header.getInt();
+            int columns = header.getInt();
+            ByteBuffer lengthBuffer = read(channel, HEADER_SIZE, 4 * columns);
+            long[] positions = new long[columns];
+            int[] lengths = new int[columns];
+            long position = HEADER_SIZE + 4L * columns;
+            for (int i = 0; i < columns; i++) {
+                lengths[i] = lengthBuffer.getInt();
+                positions[i] = position;
+                position += lengths[i];
+            }
+            return new ArchiveSegment(path, day, rows, positions, lengths);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    LocalDate getDay() {
+        return day;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    boolean containsAccount(long accountId) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             Decoder accounts = decoder(channel, Column.ACCOUNTS)) {
+            long count = accounts.readVarLong();
+            long account = 0;
+            for (long i = 0; i < count; i++) {
+                account += accounts.readVarLong();
+                if (account >= accountId) {
+                    return account == accountId;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A cursor before the first row; the file is read here and not kept open.
+     */
+    Cursor cursor() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Cursor(rows, decoder(channel, Column.ID), decoder(channel, Column.TIMESTAMP), decoder(channel, Column.OFFSET),
+                    decoder(channel, Column.SENDER), decoder(channel, Column.RECIPIENT), decoder(channel, Column.AMOUNT));
+        }
+    }
+
+    static long micros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static int compare(Transaction left, Transaction right) {
+        int order = left.getTimestamp().toInstant().compareTo(right.getTimestamp().toInstant());
+        return order != 0 ? order : Long.compare(left.getId(), right.getId());
+    }
+
+    private Decoder decoder(FileChannel channel, Column column) throws IOException {
+        ByteBuffer compressed = read(channel, columnPositions[column.ordinal()], columnLengths[column.ordinal()]);
+        return new Decoder(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed.array()))));
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated transaction archive segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * The rows of a segment in (timestamp, id) order, decoded one at a time; the fields hold the
+     * current row after {@link #next()} returned {@code true}.
+     */
+    static final class Cursor implements AutoCloseable {
+        private final int rows;
+        private final Decoder ids;
+        private final Decoder timestamps;
+        private final Decoder offsets;
+        private final Decoder senders;
+        private final Decoder recipients;
+        private final Decoder amounts;
+        private int row;
+        long id;
+        long micros;
+        int offset;
+        long sender;
+        long recipient;
+        long cents;
+
+        private Cursor(int rows, Decoder ids, Decoder timestamps, Decoder offsets, Decoder senders, Decoder recipients, Decoder amounts) {
+            this.rows = rows;
+            this.ids = ids;
+            this.timestamps = timestamps;
+            this.offsets = offsets;
+            this.senders = senders;
+            this.recipients = recipients;
+            this.amounts = amounts;
+        }
+
+        /**
+         * Moves to the next row, closing the cursor after the last one.
+         */
+        boolean next() throws IOException {
+            if (row == rows) {
+                close();
+                return false;
+            }
+            row++;
+            id += ids.readZigZag();
+            micros += timestamps.readZigZag();
+            offset = (int) offsets.readZigZag();
+            sender = senders.readVarLong();
+            recipient = recipients.readVarLong();
+            cents = amounts.readZigZag();
+            return true;
+        }
+
+        TransactionView view() {
+            Instant instant = Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000);
+            return new TransactionView(id, sender, recipient, Money.ofCents(cents).toBigDecimal(),
+                    OffsetDateTime.ofInstant(instant, ZoneOffset.ofTotalSeconds(offset)));
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Decoder decoder : List.of(ids, timestamps, offsets, senders, recipients, amounts)) {
+                decoder.close();
+            }
+        }
+    }
+
+    private static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+        }
+
+        byte[] deflate() throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (OutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+                bytes.writeTo(out);
+            } finally {
+                deflater.end();
+            }
+            return compressed.toByteArray();
+        }
+    }
+
+    private static final class Decoder implements AutoCloseable {
+        private final InputStream in;
+
+        Decoder(InputStream in) {
+            this.in = in;
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated transaction archive column");
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
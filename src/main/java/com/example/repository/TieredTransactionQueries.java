@@ -0,0 +1,28 @@
+package com.example.repository;
+
+import com.example.dto.TransactionView;
+import org.springframework.data.domain.Limit;
+
+import java.time.OffsetDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Transaction reads answered from the {@link TransactionArchive} for archived days and from the
+ * database for the rest, in the same order as a single query over both.
+ */
+public interface TieredTransactionQueries {
+    /**
+     * Transactions sent by the account after the given (timestamp, id) position and before {@code to}.
+     */
+    Stream<TransactionView> streamSentAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to, Limit limit);
+
+    /**
+     * Transactions received by the account after the given (timestamp, id) position and before {@code to}.
+     */
+    Stream<TransactionView> streamReceivedAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to, Limit limit);
+
+    /**
+     * All transactions in {@code [from, to)} in timestamp order.
+     */
+    Stream<TransactionView> streamByTimestamp(OffsetDateTime from, OffsetDateTime to);
+}
@@ -0,0 +1,64 @@
+package com.example.repository;
+
+import com.example.dto.TransactionView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+
+import java.time.OffsetDateTime;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The archived part of a range is read first and the database is only queried once it has been
+ * consumed, from the archive cutoff on, so a page that ends in archived days costs no query at all.
+ */
+class TieredTransactionQueriesImpl implements TieredTransactionQueries {
+    @Autowired
+    @Lazy
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    @Override
+    public Stream<TransactionView> streamSentAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to, Limit limit) {
+        OffsetDateTime cutoff = transactionArchive.getArchivedBefore();
+        if (cutoff == null || !timestamp.isBefore(cutoff)) {
+            return transactionRepository.streamHotSentAfter(accountId, timestamp, id, to, limit);
+        }
+        return limit(Stream.concat(transactionArchive.streamSentAfter(accountId, timestamp, id, to),
+                lazily(() -> transactionRepository.streamHotSentAfter(accountId, cutoff, Long.MIN_VALUE, to, limit))), limit);
+    }
+
+    @Override
+    public Stream<TransactionView> streamReceivedAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to, Limit limit) {
+        OffsetDateTime cutoff = transactionArchive.getArchivedBefore();
+        if (cutoff == null || !timestamp.isBefore(cutoff)) {
+            return transactionRepository.streamHotReceivedAfter(accountId, timestamp, id, to, limit);
+        }
+        return limit(Stream.concat(transactionArchive.streamReceivedAfter(accountId, timestamp, id, to),
+                lazily(() -> transactionRepository.streamHotReceivedAfter(accountId, cutoff, Long.MIN_VALUE, to, limit))), limit);
+    }
+
+    @Override
+    public Stream<TransactionView> streamByTimestamp(OffsetDateTime from, OffsetDateTime to) {
+        OffsetDateTime cutoff = transactionArchive.getArchivedBefore();
+        if (cutoff == null || !from.isBefore(cutoff)) {
+            return transactionRepository.streamHotByTimestamp(from, to);
+        }
+        return Stream.concat(transactionArchive.streamByTimestamp(from, to),
+                lazily(() -> transactionRepository.streamHotByTimestamp(cutoff, to)));
+    }
+
+    /**
+     * Opens the stream when the first element is requested; flatMap closes it once consumed.
+     */
+    private static Stream<TransactionView> lazily(Supplier<Stream<TransactionView>> stream) {
+        return Stream.of(stream).flatMap(Supplier::get);
+    }
+
+    private static Stream<TransactionView> limit(Stream<TransactionView> transactions, Limit limit) {
+        return limit.isLimited() ? transactions.limit(limit.max()) : transactions;
+    }
+}
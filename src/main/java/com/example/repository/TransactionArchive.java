@@ -0,0 +1,282 @@
+package com.example.repository;
+
+import com.example.dto.TransactionView;
+import com.example.entity.Transaction;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Cold tier of the transaction table: {@link ArchiveSegment} files of whole UTC days, all of them
+ * before {@link #getArchivedBefore()}. Transactions before that instant are read from here and
+ * everything from it on from the database, so every transaction is read from exactly one tier
+ * even while the archived rows are still waiting to be deleted from the table.
+ */
+@Component
+public class TransactionArchive {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionArchive.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CUTOFF_FILE = "archived-before";
+    private static final Comparator<ArchiveSegment.Cursor> ORDER = Comparator
+            .comparingLong((ArchiveSegment.Cursor row) -> row.micros)
+            .thenComparingLong(row -> row.id);
+
+    @Value("${transaction.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transaction.archive.directory:${java.io.tmpdir}/transactionservice/archive}")
+    private Path directory;
+
+    private final NavigableMap<LocalDate, List<ArchiveSegment>> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile OffsetDateTime archivedBefore;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // left behind by a run that stopped before the file was complete
+                    Files.delete(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    ArchiveSegment segment = ArchiveSegment.open(file);
+                    segments.merge(segment.getDay(), List.of(segment), TransactionArchive::concat);
+                }
+            }
+        }
+        Path cutoff = directory.resolve(CUTOFF_FILE);
+        if (Files.exists(cutoff)) {
+            archivedBefore = OffsetDateTime.parse(Files.readString(cutoff).trim());
+        }
+        logger.info("Transaction archive in {}: {} segments, {} rows, archived before {}",
+                directory, getSegmentCount(), getRowCount(), archivedBefore);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the start of the first UTC day still answered from the database, or {@code null} when
+     * nothing has been archived
+     */
+    public OffsetDateTime getArchivedBefore() {
+        return archivedBefore;
+    }
+
+    public int getSegmentCount() {
+        return segments.values().stream().mapToInt(List::size).sum();
+    }
+
+    public long getRowCount() {
+        return segments.values().stream().flatMap(List::stream).mapToLong(ArchiveSegment::getRows).sum();
+    }
+
+    /**
+     * Archived transactions in {@code [from, to)} in timestamp order.
+     */
+    public Stream<TransactionView> streamByTimestamp(OffsetDateTime from, OffsetDateTime to) {
+        Bound lower = Bound.of(from);
+        Bound upper = Bound.of(to);
+        return days(from, to).flatMap(day -> read(day, null, row -> row.micros >= lower.ceil && row.micros < upper.ceil));
+    }
+
+    /**
+     * Archived transactions sent by the account after the (timestamp, id) position and before {@code to}.
+     */
+    public Stream<TransactionView> streamSentAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to) {
+        return streamAfter(accountId, timestamp, id, to, true);
+    }
+
+    /**
+     * Archived transactions received by the account after the (timestamp, id) position and before {@code to}.
+     */
+    public Stream<TransactionView> streamReceivedAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to) {
+        return streamAfter(accountId, timestamp, id, to, false);
+    }
+
+    /**
+     * Ids of the transactions of the day already archived, so an interrupted run is not archived twice.
+     */
+    public Set<Long> archivedIds(LocalDate day) throws IOException {
+        Set<Long> ids = new HashSet<>();
+        for (ArchiveSegment segment : segments.getOrDefault(day, List.of())) {
+            ArchiveSegment.Cursor row = segment.cursor();
+            while (row.next()) {
+                ids.add(row.id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the transactions, all from {@code day}, as a new segment. It is read only once
+     * {@link #advance} moves the cutoff past the day, or right away if the day is already archived.
+     */
+    public void append(LocalDate day, List<Transaction> transactions) throws IOException {
+        writeLock.lock();
+        try {
+            int sequence = segments.getOrDefault(day, List.of()).size();
+            Path file;
+            do {
+                file = directory.resolve(day + "-" + sequence++ + SEGMENT_SUFFIX);
+            } while (Files.exists(file));
+            ArchiveSegment segment = ArchiveSegment.write(file, day, transactions);
+            segments.merge(day, List.of(segment), TransactionArchive::concat);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Moves reads of the transactions before {@code cutoff} from the database to the archive.
+     * Everything before it must have been appended first.
+     */
+    public void advance(OffsetDateTime cutoff) throws IOException {
+        writeLock.lock();
+        try {
+            if (archivedBefore != null && !cutoff.isAfter(archivedBefore)) {
+                return;
+            }
+            Path file = directory.resolve(CUTOFF_FILE);
+            Path temporary = directory.resolve(CUTOFF_FILE + ".tmp");
+            Files.writeString(temporary, cutoff.toString());
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            archivedBefore = cutoff;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Stream<TransactionView> streamAfter(Long accountId, OffsetDateTime timestamp, Long id, OffsetDateTime to, boolean sent) {
+        Bound after = Bound.of(timestamp);
+        Bound upper = Bound.of(to);
+        long account = accountId;
+        return days(timestamp, to).flatMap(day -> read(day, account, row -> (sent ? row.sender : row.recipient) == account
+                && (row.micros > after.floor || row.micros == after.floor && after.exact && row.id > id)
+                && row.micros < upper.ceil));
+    }
+
+    /**
+     * The archived days overlapping {@code [from, to)}, read lazily one after the other.
+     */
+    private Stream<LocalDate> days(OffsetDateTime from, OffsetDateTime to) {
+        OffsetDateTime cutoff = archivedBefore;
+        if (cutoff == null || !from.isBefore(cutoff) || !from.isBefore(to)) {
+            return Stream.empty();
+        }
+        OffsetDateTime end = to.isBefore(cutoff) ? to : cutoff;
+        LocalDate firstDay = from.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        LocalDate lastDay = end.minusNanos(1).withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        if (lastDay.isBefore(firstDay)) {
+            return Stream.empty();
+        }
+        return segments.subMap(firstDay, true, lastDay, true).keySet().stream();
+    }
+
+    /**
+     * The matching rows of the day in timestamp order. Each segment is sorted, so a day with
+     * several segments is merged row by row as the stream is consumed instead of being sorted.
+     */
+    private Stream<TransactionView> read(LocalDate day, Long accountId, RowPredicate filter) {
+        PriorityQueue<ArchiveSegment.Cursor> heads = new PriorityQueue<>(ORDER);
+        try {
+            for (ArchiveSegment segment : segments.getOrDefault(day, List.of())) {
+                if (accountId != null && !segment.containsAccount(accountId)) {
+                    continue;
+                }
+                ArchiveSegment.Cursor cursor = segment.cursor();
+                if (advance(cursor, filter)) {
+                    heads.add(cursor);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived transactions of " + day, e);
+        }
+        Iterator<TransactionView> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public TransactionView next() {
+                ArchiveSegment.Cursor cursor = heads.remove();
+                TransactionView transaction = cursor.view();
+                try {
+                    if (advance(cursor, filter)) {
+                        heads.add(cursor);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read archived transactions of " + day, e);
+                }
+                return transaction;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static boolean advance(ArchiveSegment.Cursor cursor, RowPredicate filter) throws IOException {
+        while (cursor.next()) {
+            if (filter.test(cursor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<ArchiveSegment> concat(List<ArchiveSegment> existing, List<ArchiveSegment> added) {
+        List<ArchiveSegment> all = new ArrayList<>(existing);
+        all.addAll(added);
+        return List.copyOf(all);
+    }
+
+    private interface RowPredicate {
+        boolean test(ArchiveSegment.Cursor row);
+    }
+
+    /**
+     * An instant as archived epoch microseconds: {@code t < x} exactly when {@code micros < ceil}
+     * and {@code t > x} exactly when {@code micros > floor}.
+     */
+    private record Bound(long floor, long ceil, boolean exact) {
+        static Bound of(OffsetDateTime timestamp) {
+            Instant instant = timestamp.toInstant();
+            long floor = ArchiveSegment.micros(instant);
+            boolean exact = instant.getNano() % 1_000 == 0;
+            return new Bound(floor, exact ? floor : floor + 1, exact);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.repository;
+
+import com.example.entity.TransactionEventCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TransactionEventCheckpointRepository extends JpaRepository<TransactionEventCheckpoint, String> {
+}
@@ -0,0 +1,14 @@
+package com.example.repository;
+
+import com.example.entity.TransactionEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface TransactionEventRepository extends JpaRepository<TransactionEvent, Long> {
+    /**
+     * The oldest unpublished events, read through the primary key index.
+     */
+    List<TransactionEvent> findByOrderByIdAsc(Limit limit);
+}
@@ -1,7 +1,67 @@
 package com.example.repository;
 
+import com.example.dto.TransactionView;
 import com.example.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TieredTransactionQueries {
+    /**
+     * Looks in the database only: idempotency keys are needed for far less time than transactions are kept there.
+     */
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Transactions sent by the account after the given (timestamp, id) position and before {@code to},
+     * read as a range scan of the (sender, timestamp, id) index. Ordering by the whole index, constant
+     * account included, lets H2 stop after the limit instead of sorting the rest of the range.
+     */
+    @Query("select new com.example.dto.TransactionView(t.id, t.senderAccountId, t.recipientAccountId, t.amount, t.timestamp) "
+            + "from Transaction t where t.senderAccountId = :accountId "
+            + "and t.timestamp >= :timestamp and (t.timestamp > :timestamp or t.id > :id) and t.timestamp < :to "
+            + "order by t.senderAccountId, t.timestamp, t.id")
+    Stream<TransactionView> streamHotSentAfter(@Param("accountId") Long accountId, @Param("timestamp") OffsetDateTime timestamp,
+                                               @Param("id") Long id, @Param("to") OffsetDateTime to, Limit limit);
+
+    /**
+     * Transactions received by the account after the given (timestamp, id) position and before {@code to},
+     * read as a range scan of the (recipient, timestamp, id) index.
+     */
+    @Query("select new com.example.dto.TransactionView(t.id, t.senderAccountId, t.recipientAccountId, t.amount, t.timestamp) "
+            + "from Transaction t where t.recipientAccountId = :accountId "
+            + "and t.timestamp >= :timestamp and (t.timestamp > :timestamp or t.id > :id) and t.timestamp < :to "
+            + "order by t.recipientAccountId, t.timestamp, t.id")
+    Stream<TransactionView> streamHotReceivedAfter(@Param("accountId") Long accountId, @Param("timestamp") OffsetDateTime timestamp,
+                                                   @Param("id") Long id, @Param("to") OffsetDateTime to, Limit limit);
+
+    /**
+     * All transactions in {@code [from, to)} in timestamp order, read through the (timestamp, id) index.
+     * Rows are fetched in blocks as the stream is consumed and are never attached to the persistence context.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.example.dto.TransactionView(t.id, t.senderAccountId, t.recipientAccountId, t.amount, t.timestamp) "
+            + "from Transaction t where t.timestamp >= :from and t.timestamp < :to order by t.timestamp, t.id")
+    Stream<TransactionView> streamHotByTimestamp(@Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    /**
+     * Rows older than {@code before} in timestamp order, as entities for the archiver to copy.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t where t.timestamp < :before order by t.timestamp, t.id")
+    Stream<Transaction> streamHotBefore(@Param("before") OffsetDateTime before);
 }
@@ -0,0 +1,236 @@
+package com.example.service;
+
+import com.example.dto.AccountActivityResponse;
+import com.example.entity.AccountActivity;
+import com.example.entity.AccountActivityId;
+import com.example.entity.Money;
+import com.example.entity.Transaction;
+import com.example.repository.AccountActivityRepository;
+import com.example.repository.TransactionArchive;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-account, per-UTC-day totals of sent and received transfers. The totals are added to the
+ * {@code account_activity} table in the same database transaction that inserts the transactions,
+ * and to an in-memory index of the last {@code retention-days} days once that transaction commits,
+ * so recent days are answered without touching the database and older days with one primary key lookup.
+ */
+@Component
+public class AccountActivityProjection {
+    private static final Logger logger = LoggerFactory.getLogger(AccountActivityProjection.class);
+    private static final Comparator<AccountActivityId> ROW_ORDER = Comparator
+            .comparing(AccountActivityId::getAccountId)
+            .thenComparing(AccountActivityId::getActivityDate);
+
+    @Value("${transaction.activity.retention-days:35}")
+    private int retentionDays = 35;
+
+    @Autowired
+    private AccountActivityRepository accountActivityRepository;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    private final LongObjectHashMap<DailyTotals> accounts = new LongObjectHashMap<>();
+    // recording holds the read lock until its transaction completes, so a rebuild never misses or double counts one
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void init() {
+        load();
+    }
+
+    /**
+     * Adds the transactions to the totals. Must run in the database transaction that inserts them.
+     */
+    public void record(List<Transaction> transactions) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Account activity must be recorded within the transaction inserting the transfers");
+        }
+
+        // rows are updated in key order so concurrent transfers between the same accounts cannot deadlock
+        Map<AccountActivityId, Totals> changes = new TreeMap<>(ROW_ORDER);
+        for (Transaction transaction : transactions) {
+            LocalDate date = transaction.getTimestamp().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+            changes.computeIfAbsent(new AccountActivityId(transaction.getSenderAccountId(), date), id -> new Totals())
+                    .addSent(Money.of(transaction.getAmount()));
+            changes.computeIfAbsent(new AccountActivityId(transaction.getRecipientAccountId(), date), id -> new Totals())
+                    .addReceived(Money.of(transaction.getAmount()));
+        }
+
+        rebuildLock.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(changes);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                rebuildLock.readLock().unlock();
+            }
+        });
+        changes.forEach((id, totals) -> accountActivityRepository.add(id.getAccountId(), id.getActivityDate(),
+                totals.sentCount, Money.ofCents(totals.sentCents).toBigDecimal(),
+                totals.receivedCount, Money.ofCents(totals.receivedCents).toBigDecimal()));
+    }
+
+    public AccountActivityResponse get(Long accountId, LocalDate date) {
+        AccountActivityResponse response = new AccountActivityResponse();
+        response.setAccountId(accountId);
+        response.setDate(date);
+        response.setSentAmount(Money.ZERO);
+        response.setReceivedAmount(Money.ZERO);
+
+        if (date.isBefore(firstRetainedDate())) {
+            accountActivityRepository.findById(new AccountActivityId(accountId, date)).ifPresent(activity -> {
+                response.setSentCount(activity.getSentCount());
+                response.setSentAmount(activity.getSentAmount());
+                response.setReceivedCount(activity.getReceivedCount());
+                response.setReceivedAmount(activity.getReceivedAmount());
+            });
+            return response;
+        }
+
+        synchronized (accounts) {
+            DailyTotals dailyTotals = accounts.get(accountId);
+            Totals totals = dailyTotals == null ? null : dailyTotals.get(date.toEpochDay());
+            if (totals != null) {
+                response.setSentCount(totals.sentCount);
+                response.setSentAmount(Money.ofCents(totals.sentCents));
+                response.setReceivedCount(totals.receivedCount);
+                response.setReceivedAmount(Money.ofCents(totals.receivedCents));
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Recomputes the table from the transaction history and reloads the in-memory index,
+     * holding back transfers being recorded meanwhile. Days already moved to the
+     * {@link TransactionArchive} are no longer in the table and keep their totals.
+     *
+     * @return the number of rows written
+     */
+    @Transactional
+    public int rebuild() {
+        rebuildLock.writeLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                load();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                rebuildLock.writeLock().unlock();
+            }
+        });
+        OffsetDateTime archivedBefore = transactionArchive.getArchivedBefore();
+        if (archivedBefore == null) {
+            accountActivityRepository.deleteAllInBatch();
+            archivedBefore = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        } else {
+            accountActivityRepository.deleteFrom(archivedBefore.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate());
+        }
+        int rows = accountActivityRepository.insertFromTransactions(archivedBefore);
+        logger.info("Rebuilt account activity from transaction history, {} rows", rows);
+        return rows;
+    }
+
+    private void load() {
+        List<AccountActivity> recent = accountActivityRepository.findByIdActivityDateGreaterThanEqual(firstRetainedDate());
+        synchronized (accounts) {
+            accounts.clear();
+            for (AccountActivity activity : recent) {
+                Totals totals = new Totals();
+                totals.sentCount = activity.getSentCount();
+                totals.sentCents = activity.getSentAmount().getCents();
+                totals.receivedCount = activity.getReceivedCount();
+                totals.receivedCents = activity.getReceivedAmount().getCents();
+                accounts.computeIfAbsent(activity.getId().getAccountId(), id -> new DailyTotals(retentionDays))
+                        .add(activity.getId().getActivityDate().toEpochDay(), totals);
+            }
+        }
+    }
+
+    private void apply(Map<AccountActivityId, Totals> changes) {
+        synchronized (accounts) {
+            changes.forEach((id, totals) -> accounts.computeIfAbsent(id.getAccountId(), accountId -> new DailyTotals(retentionDays))
+                    .add(id.getActivityDate().toEpochDay(), totals));
+        }
+    }
+
+    private LocalDate firstRetainedDate() {
+        return LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays - 1);
+    }
+
+    private static final class Totals {
+        private long sentCount;
+        private long sentCents;
+        private long receivedCount;
+        private long receivedCents;
+
+        private void addSent(Money amount) {
+            sentCount++;
+            sentCents = Math.addExact(sentCents, amount.getCents());
+        }
+
+        private void addReceived(Money amount) {
+            receivedCount++;
+            receivedCents = Math.addExact(receivedCents, amount.getCents());
+        }
+    }
+
+    /**
+     * Ring of the totals of the last days of one account, indexed by epoch day.
+     */
+    private static final class DailyTotals {
+        private final long[] epochDays;
+        private final Totals[] totals;
+
+        private DailyTotals(int days) {
+            epochDays = new long[days];
+            totals = new Totals[days];
+        }
+
+        private Totals get(long epochDay) {
+            int slot = (int) Math.floorMod(epochDay, (long) epochDays.length);
+            return totals[slot] != null && epochDays[slot] == epochDay ? totals[slot] : null;
+        }
+
+        private void add(long epochDay, Totals change) {
+            int slot = (int) Math.floorMod(epochDay, (long) epochDays.length);
+            if (totals[slot] != null && epochDays[slot] > epochDay) {
+                // older than the days kept in memory, only the table has it
+                return;
+            }
+            if (totals[slot] == null || epochDays[slot] != epochDay) {
+                epochDays[slot] = epochDay;
+                totals[slot] = new Totals();
+            }
+            Totals current = totals[slot];
+            current.sentCount += change.sentCount;
+            current.sentCents = Math.addExact(current.sentCents, change.sentCents);
+            current.receivedCount += change.receivedCount;
+            current.receivedCents = Math.addExact(current.receivedCents, change.receivedCents);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.service;
+
+import com.example.client.AccountBusyException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process per-account locks that serialize the read-modify-write of account balances.
+ * Locks are created on demand and dropped once no thread holds or waits for them, and a set
+ * of accounts is always locked in ascending id order so overlapping transfers cannot deadlock.
+ */
+@Component
+public class AccountLocks implements MeterBinder {
+
+    @Value("${account.lock.timeout:5s}")
+    private Duration lockTimeout = Duration.ofSeconds(5);
+
+    private final ConcurrentHashMap<Long, AccountLock> locks = new ConcurrentHashMap<>();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile Timer waitTimer;
+
+    /**
+     * Locks all given accounts, waiting at most {@code account.lock.timeout} in total.
+     *
+     * @throws AccountBusyException if the locks could not be acquired in time
+     */
+    public Held lock(Collection<Long> accountIds) {
+        List<Long> locked = new ArrayList<>();
+        long deadline = System.nanoTime() + lockTimeout.toNanos();
+        try {
+            for (Long accountId : new TreeSet<>(accountIds)) {
+                acquire(accountId, deadline);
+                locked.add(accountId);
+            }
+        } catch (RuntimeException e) {
+            locked.forEach(this::release);
+            throw e;
+        }
+        return new Held(locked);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("account.lock.acquisitions", acquisitions, LongAdder::sum)
+                .description("Account locks acquired")
+                .register(registry);
+        FunctionCounter.builder("account.lock.contended", contended, LongAdder::sum)
+                .description("Account lock acquisitions that had to wait for another transfer")
+                .register(registry);
+        FunctionCounter.builder("account.lock.timeouts", timeouts, LongAdder::sum)
+                .description("Account lock acquisitions that gave up after account.lock.timeout")
+                .register(registry);
+        Gauge.builder("account.lock.active", locks, ConcurrentHashMap::size)
+                .description("Accounts currently locked or waited on")
+                .register(registry);
+        waitTimer = Timer.builder("account.lock.wait")
+                .description("Time spent waiting for contended account locks")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private void acquire(Long accountId, long deadline) {
+        AccountLock accountLock = locks.compute(accountId, (id, existing) -> {
+            AccountLock lock = existing == null ? new AccountLock() : existing;
+            lock.references++;
+            return lock;
+        });
+
+        acquisitions.increment();
+        if (accountLock.lock.tryLock()) {
+            return;
+        }
+
+        contended.increment();
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = accountLock.lock.tryLock(deadline - start, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Timer timer = waitTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                dereference(accountId);
+            }
+        }
+
+        if (!acquired) {
+            timeouts.increment();
+            throw new AccountBusyException("Account " + accountId + " is busy, please retry");
+        }
+    }
+
+    private void release(Long accountId) {
+        locks.get(accountId).lock.unlock();
+        dereference(accountId);
+    }
+
+    private void dereference(Long accountId) {
+        locks.computeIfPresent(accountId, (id, lock) -> --lock.references == 0 ? null : lock);
+    }
+
+    private static class AccountLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int references;
+    }
+
+    public class Held implements AutoCloseable {
+        private final List<Long> accountIds;
+
+        private Held(List<Long> accountIds) {
+            this.accountIds = accountIds;
+        }
+
+        @Override
+        public void close() {
+            for (int i = accountIds.size() - 1; i >= 0; i--) {
+                release(accountIds.get(i));
+            }
+        }
+    }
+}
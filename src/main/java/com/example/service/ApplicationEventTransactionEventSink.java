@@ -0,0 +1,28 @@
+package com.example.service;
+
+import com.example.dto.TransactionCompletedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+/**
+ * Publishes events to in-process {@code @EventListener} methods, one call after the other on the
+ * relay thread. A listener that throws has the whole batch delivered again, to every listener.
+ */
+public class ApplicationEventTransactionEventSink implements TransactionEventSink {
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public ApplicationEventTransactionEventSink(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return "bus";
+    }
+
+    @Override
+    public void publish(List<TransactionCompletedEvent> events) {
+        events.forEach(applicationEventPublisher::publishEvent);
+    }
+}
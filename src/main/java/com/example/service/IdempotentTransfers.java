@@ -0,0 +1,119 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs each transfer at most once per idempotency key. Completed keys are answered from a
+ * bounded in-memory index, falling back to the persisted key on the transaction row, and
+ * requests that arrive while the first one is still running wait for its outcome.
+ * Failed transfers are not remembered, so a key can be retried after e.g. insufficient funds.
+ */
+@Component
+public class IdempotentTransfers {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentTransfers.class);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${transaction.idempotency.maximum-size:100000}")
+    private long maximumSize = 100_000;
+
+    @Value("${transaction.idempotency.ttl:24h}")
+    private Duration ttl = Duration.ofHours(24);
+
+    private final ConcurrentHashMap<String, CompletableFuture<Transaction>> inFlight = new ConcurrentHashMap<>();
+    private Cache<String, Transaction> completed;
+
+    @PostConstruct
+    public void init() {
+        completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Transaction execute(String idempotencyKey, Long senderAccountId, Long recipientAccountId, BigDecimal amount,
+                               Supplier<Transaction> transfer) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        Transaction existing = findCompleted(idempotencyKey);
+        if (existing != null) {
+            logger.info("Replaying transaction id: {} for idempotency key: {}", existing.getId(), idempotencyKey);
+            return matching(existing, senderAccountId, recipientAccountId, amount);
+        }
+
+        CompletableFuture<Transaction> pending = new CompletableFuture<>();
+        CompletableFuture<Transaction> running = inFlight.putIfAbsent(idempotencyKey, pending);
+        if (running != null) {
+            logger.info("Waiting for in-flight transfer with idempotency key: {}", idempotencyKey);
+            return matching(await(running), senderAccountId, recipientAccountId, amount);
+        }
+
+        try {
+            // a duplicate may have completed between the lookup above and claiming the key
+            Transaction transaction = findCompleted(idempotencyKey);
+            if (transaction == null) {
+                transaction = transfer.get();
+                completed.put(idempotencyKey, transaction);
+            }
+            pending.complete(transaction);
+            return matching(transaction, senderAccountId, recipientAccountId, amount);
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, pending);
+        }
+    }
+
+    private Transaction findCompleted(String idempotencyKey) {
+        Transaction transaction = completed.getIfPresent(idempotencyKey);
+        if (transaction == null) {
+            transaction = transactionRepository.findByIdempotencyKey(idempotencyKey).orElse(null);
+            if (transaction != null) {
+                completed.put(idempotencyKey, transaction);
+            }
+        }
+        return transaction;
+    }
+
+    private static Transaction await(CompletableFuture<Transaction> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Transaction matching(Transaction transaction, Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        if (!Objects.equals(transaction.getSenderAccountId(), senderAccountId)
+                || !Objects.equals(transaction.getRecipientAccountId(), recipientAccountId)
+                || transaction.getAmount().compareTo(amount) != 0) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different transfer");
+        }
+        return transaction;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.repository.TransactionArchive;
+import com.example.repository.TransactionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Moves transactions older than {@code hot-days} whole UTC days from the database to the
+ * {@link TransactionArchive}, one day at a time, then moves the archive cutoff. The archived rows
+ * are deleted from the table on the next run rather than right away, so a read that started
+ * before the cutoff moved still finds them where it looked.
+ */
+@Component
+public class TransactionArchiver implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionArchiver.class);
+
+    @Value("${transaction.archive.hot-days:7}")
+    private int hotDays;
+
+    @Value("${transaction.archive.interval:1h}")
+    private Duration interval;
+
+    @Value("${transaction.archive.segment-rows:100000}")
+    private int segmentRows;
+
+    @Value("${transaction.archive.delete-chunk-size:1000}")
+    private int deleteChunkSize;
+
+    @Value("${transaction.idempotency.ttl:24h}")
+    private Duration idempotencyTtl;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+    private final LongAdder archivedRows = new LongAdder();
+    private ScheduledExecutorService scheduler;
+    private volatile Timer runTimer;
+
+    @PostConstruct
+    public void init() {
+        if (!transactionArchive.isEnabled()) {
+            return;
+        }
+        if (Duration.ofDays(hotDays).compareTo(idempotencyTtl) < 0) {
+            logger.warn("transaction.archive.hot-days ({}) is shorter than transaction.idempotency.ttl ({}), "
+                    + "idempotency keys of archived transfers are no longer recognized", hotDays, idempotencyTtl);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (RuntimeException e) {
+                logger.error("Transaction archiving failed, retrying in {}", interval, e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!transactionArchive.isEnabled()) {
+            return;
+        }
+        FunctionCounter.builder("transaction.archive.rows", archivedRows, LongAdder::sum)
+                .description("Transactions moved from the database to the archive")
+                .register(registry);
+        Gauge.builder("transaction.archive.segments", transactionArchive, TransactionArchive::getSegmentCount)
+                .description("Archive segment files")
+                .register(registry);
+        runTimer = Timer.builder("transaction.archive.run")
+                .description("Time to archive old transactions and delete those archived by the previous run")
+                .register(registry);
+    }
+
+    /**
+     * Archives every transaction before the start of the UTC day {@code hot-days} ago and deletes
+     * the rows archived before the previous cutoff.
+     */
+    public Run archive() {
+        if (!transactionArchive.isEnabled()) {
+            throw new IllegalStateException("Transaction archive is disabled");
+        }
+        runLock.lock();
+        long start = System.nanoTime();
+        try {
+            OffsetDateTime cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(hotDays).atStartOfDay().atOffset(ZoneOffset.UTC);
+            OffsetDateTime previousCutoff = transactionArchive.getArchivedBefore();
+            List<Long> expired = new ArrayList<>();
+            long archived = copy(cutoff, previousCutoff, expired);
+            transactionArchive.advance(cutoff);
+            long deleted = delete(expired);
+
+            Timer timer = runTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            logger.info("Archived {} transactions before {}, deleted {} archived before {}", archived, cutoff, deleted, previousCutoff);
+            return new Run(archived, deleted);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive transactions", e);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the rows before the cutoff that are not archived yet, and collects the ids of those
+     * already archived before the previous cutoff, which readers no longer look for in the table.
+     *
+     * @return the number of rows appended
+     */
+    private long copy(OffsetDateTime cutoff, OffsetDateTime previousCutoff, List<Long> expired) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            long appended = 0;
+            LocalDate day = null;
+            Set<Long> archivedIds = Set.of();
+            List<Transaction> segment = new ArrayList<>();
+            try (Stream<Transaction> transactions = transactionRepository.streamHotBefore(cutoff)) {
+                Iterator<Transaction> iterator = transactions.iterator();
+                while (iterator.hasNext()) {
+                    Transaction transaction = iterator.next();
+                    LocalDate transactionDay = transaction.getTimestamp().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+                    if (!transactionDay.equals(day)) {
+                        appended += append(day, segment);
+                        day = transactionDay;
+                        archivedIds = transactionArchive.archivedIds(day);
+                    }
+                    if (!archivedIds.contains(transaction.getId())) {
+                        segment.add(transaction);
+                        if (segment.size() >= segmentRows) {
+                            appended += append(day, segment);
+                        }
+                    } else if (previousCutoff != null && transaction.getTimestamp().isBefore(previousCutoff)) {
+                        expired.add(transaction.getId());
+                    }
+                }
+                appended += append(day, segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write transaction archive segment", e);
+            }
+            return appended;
+        });
+    }
+
+    private int append(LocalDate day, List<Transaction> segment) throws IOException {
+        if (segment.isEmpty()) {
+            return 0;
+        }
+        int rows = segment.size();
+        transactionArchive.append(day, segment);
+        archivedRows.add(rows);
+        segment.clear();
+        // the streamed rows have been written, nothing else needs them attached
+        entityManager.clear();
+        return rows;
+    }
+
+    private long delete(List<Long> ids) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + deleteChunkSize, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.deleteAllByIdInBatch(chunk));
+        }
+        return ids.size();
+    }
+
+    /**
+     * Outcome of one archiving run.
+     */
+    public record Run(long archived, long deleted) {
+    }
+}
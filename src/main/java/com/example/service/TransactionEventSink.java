@@ -0,0 +1,23 @@
+package com.example.service;
+
+import com.example.dto.TransactionCompletedEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the {@link TransactionOutbox} relay publishes completed transfers. The relay deletes a
+ * batch from the outbox only after {@link #publish} returns, so an implementation must throw
+ * unless every event of the batch was delivered.
+ */
+public interface TransactionEventSink {
+    /**
+     * Name the relay keeps its checkpoint under.
+     */
+    String getName();
+
+    /**
+     * Delivers the events in the given order.
+     */
+    void publish(List<TransactionCompletedEvent> events) throws IOException;
+}
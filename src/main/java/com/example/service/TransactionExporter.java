@@ -0,0 +1,89 @@
+package com.example.service;
+
+import com.example.dto.ExportFormat;
+import com.example.dto.TransactionView;
+import com.example.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the transactions of a time range straight from a forward-only database cursor to an
+ * output stream, so memory use does not depend on how many rows are exported.
+ */
+@Component
+public class TransactionExporter {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExporter.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @return the number of transactions written
+     */
+    @Transactional(readOnly = true)
+    public long export(OffsetDateTime from, OffsetDateTime to, ExportFormat format, OutputStream outputStream) throws IOException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("From must be before to");
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count;
+        try (Stream<TransactionView> transactions = transactionRepository.streamByTimestamp(from, to)) {
+            count = format == ExportFormat.CSV ? writeCsv(transactions.iterator(), writer) : writeNdjson(transactions.iterator(), writer);
+        }
+        writer.flush();
+        logger.info("Exported {} transactions from {} to {} as {}", count, from, to, format);
+        return count;
+    }
+
+    private long writeNdjson(Iterator<TransactionView> transactions, Writer writer) throws IOException {
+        long count = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (transactions.hasNext()) {
+            generator.writeObject(transactions.next());
+            generator.writeRaw('\n');
+            count++;
+        }
+        generator.close();
+        return count;
+    }
+
+    private static long writeCsv(Iterator<TransactionView> transactions, Writer writer) throws IOException {
+        long count = 0;
+        writer.write("id,senderAccountId,recipientAccountId,amount,timestamp\n");
+        while (transactions.hasNext()) {
+            TransactionView transaction = transactions.next();
+            writer.write(String.valueOf(transaction.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(transaction.getSenderAccountId()));
+            writer.write(',');
+            writer.write(String.valueOf(transaction.getRecipientAccountId()));
+            writer.write(',');
+            writer.write(transaction.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(transaction.getTimestamp().toString());
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only local journal of transactions that are accepted but not yet persisted. Entries are
+ * written to numbered segment files of one line per transaction; a segment is deleted once it has
+ * been rotated out and all of its transactions are committed to the database. Appends are
+ * serialized with a {@link ReentrantLock} rather than {@code synchronized}, so a virtual thread
+ * writing or syncing a segment does not pin its carrier and others waiting for the lock unmount.
+ */
+class TransactionJournal implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionJournal.class);
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Segment active;
+    private long nextSegmentNumber;
+    private long firstNewSegmentNumber;
+    private volatile int segmentCount;
+
+    TransactionJournal(Path directory, long segmentSize, boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Reads the transactions left behind by a previous run. The segments stay on disk until
+     * {@link #deleteRecovered()} is called, so a failed recovery can be retried on the next start.
+     */
+    List<Transaction> recover() {
+        lock.lock();
+        try {
+            List<Transaction> transactions = new ArrayList<>();
+            try {
+                Files.createDirectories(directory);
+                List<Path> paths = segmentPaths();
+                segmentCount = paths.size();
+                for (Path path : paths) {
+                    nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(path) + 1);
+                    String content = Files.readString(path, StandardCharsets.UTF_8);
+                    int start = 0;
+                    for (int end = content.indexOf('\n'); end >= 0; end = content.indexOf('\n', start)) {
+                        Transaction transaction = parse(content.substring(start, end));
+                        if (transaction == null) {
+                            throw new IllegalStateException("Corrupt transaction journal entry in " + path + " at offset " + start);
+                        }
+                        transactions.add(transaction);
+                        start = end + 1;
+                    }
+                    if (start < content.length()) {
+                        // the process died while writing this entry, so its transfer was never acknowledged
+                        logger.warn("Skipping incomplete journal entry at the end of {}", path);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read transaction journal in " + directory, e);
+            }
+            firstNewSegmentNumber = nextSegmentNumber;
+            return transactions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments read by {@link #recover()}; segments appended since then are kept.
+     */
+    void deleteRecovered() {
+        lock.lock();
+        try {
+            for (Path path : segmentPaths()) {
+                if (segmentNumber(path) < firstNewSegmentNumber) {
+                    Files.delete(path);
+                    segmentCount--;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete recovered transaction journal in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Segment append(Transaction transaction) {
+        lock.lock();
+        try {
+            if (active == null) {
+                active = new Segment(directory.resolve(PREFIX + String.format("%019d", nextSegmentNumber++) + SUFFIX));
+                segmentCount++;
+            }
+            Segment segment = active;
+            segment.size += segment.channel.write(ByteBuffer.wrap(format(transaction).getBytes(StandardCharsets.UTF_8)));
+            if (fsync) {
+                segment.channel.force(false);
+            }
+            segment.pending++;
+            if (segment.size >= segmentSize) {
+                segment.rotated = true;
+                segment.channel.close();
+                active = null;
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to transaction journal in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks {@code count} transactions of the segment as committed to the database.
+     */
+    void committed(Segment segment, int count) {
+        lock.lock();
+        try {
+            segment.pending -= count;
+            if (segment.pending == 0 && segment.rotated) {
+                delete(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Closes the active segment, deleting it if all of its transactions were committed.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (active == null) {
+                return;
+            }
+            try {
+                active.channel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close transaction journal segment {}", active.path, e);
+            }
+            active.rotated = true;
+            if (active.pending == 0) {
+                delete(active);
+            } else {
+                logger.warn("{} transactions were not persisted and stay in {} until the next start", active.pending, active.path);
+            }
+            active = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+            segmentCount--;
+        } catch (IOException e) {
+            logger.warn("Could not delete transaction journal segment {}", segment.path, e);
+        }
+    }
+
+    private List<Path> segmentPaths() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(TransactionJournal::isSegment).sorted().toList();
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static String format(Transaction transaction) {
+        // the idempotency key goes last since it is the only free-form field
+        return transaction.getId() + "," + transaction.getSenderAccountId() + "," + transaction.getRecipientAccountId() + ","
+                + transaction.getAmount().toPlainString() + "," + transaction.getTimestamp() + ","
+                + (transaction.getIdempotencyKey() == null ? "" : transaction.getIdempotencyKey()) + "\n";
+    }
+
+    private static Transaction parse(String line) {
+        String[] fields = line.split(",", 6);
+        if (fields.length < 6) {
+            return null;
+        }
+        try {
+            Transaction transaction = new Transaction();
+            transaction.setId(Long.valueOf(fields[0]));
+            transaction.setSenderAccountId(Long.valueOf(fields[1]));
+            transaction.setRecipientAccountId(Long.valueOf(fields[2]));
+            transaction.setAmount(new BigDecimal(fields[3]));
+            transaction.setTimestamp(OffsetDateTime.parse(fields[4]));
+            transaction.setIdempotencyKey(fields[5].isEmpty() ? null : fields[5]);
+            return transaction;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private int pending;
+        private boolean rotated;
+
+        private Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers for each stage of a transfer, counters for the ways a transfer fails and a gauge of
+ * transfers in progress. Every meter is created once when the registry binds, so recording on the
+ * request path is a clock read and an array lookup; before binding nothing is recorded.
+ */
+@Component
+public class TransactionMetrics implements MeterBinder {
+
+    public enum Stage {
+        /** Reading the sender and recipient accounts from account-service. */
+        ACCOUNTS_READ,
+        /** Writing the new balances or applying the debit and credit. */
+        BALANCES_WRITE,
+        /** Inserting the transaction, or journaling it when write-behind is enabled. */
+        TRANSACTION_SAVE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '.');
+    }
+
+    public enum Failure {
+        SENDER_NOT_FOUND,
+        RECIPIENT_NOT_FOUND,
+        INSUFFICIENT_FUNDS,
+        INVALID_AMOUNT,
+        SELF_TRANSFER,
+        /** Over the sender's transfer rate, see {@link TransferValidator}. */
+        RATE_LIMITED,
+        ACCOUNT_BUSY,
+        /** Rejected by the circuit breaker or concurrency limit in front of account-service. */
+        SERVICE_UNAVAILABLE,
+        /** Anything answered with 500 by the exception handler. */
+        UNEXPECTED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final LongAdder[] failures = new LongAdder[Failure.values().length];
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile Timer[] stageTimers;
+    private volatile Timer succeeded;
+    private volatile Timer failed;
+
+    public TransactionMetrics() {
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Timer[] timers = new Timer[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            timers[stage.ordinal()] = Timer.builder("transaction.transfer.stage")
+                    .tag("stage", stage.tag)
+                    .description("Time spent in one stage of a transfer")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        for (Failure failure : Failure.values()) {
+            FunctionCounter.builder("transaction.failures", failures[failure.ordinal()], LongAdder::sum)
+                    .tag("reason", failure.tag)
+                    .description("Transfers rejected or failed, by reason")
+                    .register(registry);
+        }
+        Gauge.builder("transaction.transfer.active", active, AtomicInteger::get)
+                .description("Transfers in progress")
+                .register(registry);
+        succeeded = transferTimer(registry, "success");
+        failed = transferTimer(registry, "failure");
+        stageTimers = timers;
+    }
+
+    /**
+     * Marks the start of a transfer.
+     *
+     * @return the start time to pass to {@link #finished}
+     */
+    public long started() {
+        active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void finished(long start, boolean success) {
+        active.decrementAndGet();
+        Timer timer = success ? succeeded : failed;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void record(Stage stage, long start) {
+        Timer[] timers = stageTimers;
+        if (timers != null) {
+            timers[stage.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void failed(Failure failure) {
+        failures[failure.ordinal()].increment();
+    }
+
+    private static Timer transferTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("transaction.transfer")
+                .tag("outcome", outcome)
+                .description("Time to complete a transfer")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.service;
+
+import com.example.client.Backoff;
+import com.example.client.BackoffInterruptedException;
+import com.example.dto.TransactionCompletedEvent;
+import com.example.entity.Transaction;
+import com.example.entity.TransactionEvent;
+import com.example.entity.TransactionEventCheckpoint;
+import com.example.repository.TransactionEventCheckpointRepository;
+import com.example.repository.TransactionEventRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transactional outbox of completed transfers. {@link #append} inserts one event per transaction in
+ * the database transaction that inserts the transactions, so an event exists exactly when its
+ * transfer was committed. A relay thread reads the oldest events in batches of up to
+ * {@code batch-size}, publishes them to the {@link TransactionEventSink} and then deletes them
+ * and moves the sink's checkpoint in one database transaction. A failed or interrupted publish is
+ * repeated, so delivery is at least once. Events are published in id order of the rows committed
+ * so far. While the outbox is enabled, a transfer is recorded before its accounts are unlocked and
+ * write-behind inserts in queue order, so a later transfer of an account gets a higher id and
+ * commits after the earlier one, and each account's events arrive in the order the transfers were
+ * applied. Only a write-behind caller that times out waiting for queue space, and inserts its own
+ * transaction, can overtake queued ones. Events of different accounts can arrive out of id order.
+ */
+@Component
+public class TransactionOutbox implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionOutbox.class);
+
+    @Value("${transaction.outbox.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transaction.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transaction.outbox.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${transaction.outbox.retry-backoff:100ms}")
+    private Duration retryBackoff;
+
+    @Value("${transaction.outbox.shutdown-timeout:10s}")
+    private Duration shutdownTimeout;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionEventRepository transactionEventRepository;
+
+    @Autowired
+    private TransactionEventCheckpointRepository transactionEventCheckpointRepository;
+
+    @Autowired
+    private TransactionEventSink transactionEventSink;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    // released after a commit that appended events, so the relay does not wait out the poll interval
+    private final Semaphore wakeUp = new Semaphore(0);
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTemplate;
+    private Thread relay;
+    private volatile boolean running;
+    private volatile Timer publishTimer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+        transactionEventCheckpointRepository.findById(transactionEventSink.getName()).ifPresent(checkpoint ->
+                logger.info("Relaying transaction events to {} after event {}, {} published so far",
+                        checkpoint.getSink(), checkpoint.getLastEventId(), checkpoint.getPublishedCount()));
+
+        running = true;
+        relay = new Thread(this::relay, "transaction-outbox-relay");
+        relay.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds an event for each transaction. Must run in the database transaction that inserts them.
+     */
+    public void append(List<Transaction> transactions) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Transaction events must be appended within the transaction inserting the transfers");
+        }
+        for (Transaction transaction : transactions) {
+            TransactionEvent event = new TransactionEvent();
+            event.setId(transaction.getId());
+            event.setSenderAccountId(transaction.getSenderAccountId());
+            event.setRecipientAccountId(transaction.getRecipientAccountId());
+            event.setAmount(transaction.getAmount());
+            event.setTimestamp(transaction.getTimestamp());
+            entityManager.persist(event);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (wakeUp.availablePermits() == 0) {
+                    wakeUp.release();
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        wakeUp.release();
+        try {
+            relay.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (relay.isAlive()) {
+            logger.warn("Transaction outbox relay did not stop within {}, unpublished events stay in the outbox", shutdownTimeout);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        FunctionCounter.builder("transaction.outbox.published", published, LongAdder::sum)
+                .tag("sink", transactionEventSink.getName())
+                .description("Transaction events published and removed from the outbox")
+                .register(registry);
+        FunctionCounter.builder("transaction.outbox.failures", failures, LongAdder::sum)
+                .tag("sink", transactionEventSink.getName())
+                .description("Batches of transaction events that failed to publish and will be published again")
+                .register(registry);
+        publishTimer = Timer.builder("transaction.outbox.publish")
+                .tag("sink", transactionEventSink.getName())
+                .description("Time to publish one batch of transaction events and checkpoint it")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private void relay() {
+        int attempt = 0;
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayBatch();
+                attempt = 0;
+            } catch (Exception e) {
+                failures.increment();
+                logger.warn("Could not publish transaction events to {}, retrying (attempt {})",
+                        transactionEventSink.getName(), ++attempt, e);
+                try {
+                    Backoff.pause(retryBackoff, attempt);
+                } catch (BackoffInterruptedException interrupted) {
+                    stopped();
+                    return;
+                }
+                continue;
+            }
+            if (relayed < batchSize) {
+                try {
+                    wakeUp.tryAcquire(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                    wakeUp.drainPermits();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void stopped() {
+        logger.error("Transaction outbox relay to {} was interrupted and stopped, unpublished events stay in the outbox until the next start",
+                transactionEventSink.getName());
+    }
+
+    /**
+     * @return the number of events published
+     */
+    private int relayBatch() throws Exception {
+        List<TransactionEvent> events = readOnlyTemplate.execute(status -> transactionEventRepository.findByOrderByIdAsc(Limit.of(batchSize)));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        transactionEventSink.publish(events.stream()
+                .map(event -> new TransactionCompletedEvent(event.getId(), event.getSenderAccountId(),
+                        event.getRecipientAccountId(), event.getAmount(), event.getTimestamp()))
+                .toList());
+
+        List<Long> ids = events.stream().map(TransactionEvent::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionEventRepository.deleteAllByIdInBatch(ids);
+            TransactionEventCheckpoint checkpoint = transactionEventCheckpointRepository.findById(transactionEventSink.getName())
+                    .orElseGet(() -> {
+                        TransactionEventCheckpoint created = new TransactionEventCheckpoint();
+                        created.setSink(transactionEventSink.getName());
+                        return created;
+                    });
+            checkpoint.setLastEventId(ids.get(ids.size() - 1));
+            checkpoint.setPublishedCount(checkpoint.getPublishedCount() + ids.size());
+            checkpoint.setUpdatedAt(OffsetDateTime.now(ZoneOffset.UTC));
+            transactionEventCheckpointRepository.save(checkpoint);
+        });
+        published.add(ids.size());
+        Timer timer = publishTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return ids.size();
+    }
+}
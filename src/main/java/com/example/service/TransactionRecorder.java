@@ -0,0 +1,79 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Inserts transactions together with their {@link AccountActivityProjection} totals and
+ * {@link TransactionOutbox} events in one database transaction.
+ */
+@Component
+public class TransactionRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionRecorder.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountActivityProjection accountActivityProjection;
+
+    @Autowired
+    private TransactionOutbox transactionOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Transaction save(Transaction transaction) {
+        return inTransaction(() -> {
+            Transaction savedTransaction = transactionRepository.save(transaction);
+            accountActivityProjection.record(List.of(savedTransaction));
+            transactionOutbox.append(List.of(savedTransaction));
+            return savedTransaction;
+        });
+    }
+
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        return inTransaction(() -> {
+            List<Transaction> savedTransactions = transactionRepository.saveAll(transactions);
+            accountActivityProjection.record(savedTransactions);
+            transactionOutbox.append(savedTransactions);
+            return savedTransactions;
+        });
+    }
+
+    /**
+     * When two transfers create the same day's totals row at once, the one committing last fails on
+     * the primary key; running it again updates the row the other one created.
+     */
+    private <T> T inTransaction(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Retrying insert of transactions after a conflicting insert (attempt {})", attempt, e);
+            }
+        }
+    }
+}
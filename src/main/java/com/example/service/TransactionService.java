@@ -1,9 +1,24 @@
 package com.example.service;
 
+import com.example.dto.TransactionPage;
+import com.example.dto.TransactionRequest;
+import com.example.dto.TransferResult;
 import com.example.entity.Transaction;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
 
 public interface TransactionService{
     Transaction transfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount);
+
+    Transaction transfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount, String idempotencyKey);
+
+    List<TransferResult> transferBatch(List<TransactionRequest> transfers);
+
+    /**
+     * Transactions the account sent or received in {@code [from, to)}, oldest first, one page of at
+     * most {@code limit} transactions after {@code cursor}. Null bounds are open.
+     */
+    TransactionPage findTransactions(Long accountId, OffsetDateTime from, OffsetDateTime to, String cursor, int limit);
 }
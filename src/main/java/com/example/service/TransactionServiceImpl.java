@@ -1,70 +1,552 @@
 package com.example.service;
 
+import com.example.client.AccountBusyException;
+import com.example.client.AccountClient;
+import com.example.client.AccountServiceGuard;
+import com.example.client.AccountServiceUnavailableException;
+import com.example.client.Backoff;
+import com.example.client.BackoffInterruptedException;
+import com.example.client.BalanceUpdate;
+import com.example.client.BalanceUpdateMode;
 import com.example.dto.AccountResponse;
+import com.example.dto.TransactionCursor;
+import com.example.dto.TransactionPage;
+import com.example.dto.TransactionRequest;
+import com.example.dto.TransactionView;
+import com.example.dto.TransferResult;
+import com.example.entity.Money;
 import com.example.entity.Transaction;
 import com.example.repository.TransactionRepository;
+import com.example.service.TransactionMetrics.Failure;
+import com.example.service.TransactionMetrics.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class TransactionServiceImpl implements TransactionService {
     private static final Logger logger = LoggerFactory.getLogger(TransactionServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final OffsetDateTime MIN_TIMESTAMP = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime MAX_TIMESTAMP = OffsetDateTime.of(9999, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC);
+    private static final Comparator<TransactionView> KEYSET_ORDER = Comparator
+            .comparing(TransactionView::getTimestamp, OffsetDateTime.timeLineOrder())
+            .thenComparing(TransactionView::getId);
 
     @Autowired
-    private RestTemplate restTemplate;
+    private AccountClient accountClient;
 
     @Autowired
     private TransactionRepository transactionRepository;
 
-    @Value("${account.service.url}")
-    private String accountServiceUrl;
+    @Autowired
+    private AccountLocks accountLocks;
+
+    @Autowired
+    private AccountServiceGuard accountServiceGuard;
+
+    @Autowired
+    private IdempotentTransfers idempotentTransfers;
+
+    @Autowired
+    private TransactionWriteBehind transactionWriteBehind;
+
+    @Autowired
+    private TransactionRecorder transactionRecorder;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Autowired
+    private TransferValidator transferValidator;
+
+    @Autowired
+    private TransactionOutbox transactionOutbox;
+
+    @Value("${transaction.batch.insert-chunk-size:500}")
+    private int insertChunkSize;
+
+    @Value("${account.service.balance-updates:absolute}")
+    private BalanceUpdateMode balanceUpdateMode = BalanceUpdateMode.ABSOLUTE;
+
+    @Value("${account.service.conflict.max-attempts:5}")
+    private int conflictMaxAttempts = 5;
+
+    @Value("${account.service.conflict.backoff:10ms}")
+    private Duration conflictBackoff = Duration.ofMillis(10);
 
     @Override
     public Transaction transfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
-        AccountResponse senderAccount;
-        AccountResponse recipientAccount;
+        return transfer(senderAccountId, recipientAccountId, amount, null);
+    }
 
+    /**
+     * An amount with more than two decimal places is rounded to whole cents before anything else,
+     * so the balances move by the amount the transaction is recorded with.
+     */
+    @Override
+    public Transaction transfer(Long senderAccountId, Long recipientAccountId, BigDecimal requestedAmount, String idempotencyKey) {
+        long start = transactionMetrics.started();
+        boolean success = false;
+        BigDecimal amount = requestedAmount == null ? null : Money.round(requestedAmount);
         try {
-            senderAccount = restTemplate.getForObject(accountServiceUrl + senderAccountId, AccountResponse.class);
-        } catch (HttpClientErrorException.NotFound e) {
+            reject(senderAccountId, recipientAccountId, amount, transferValidator.check(senderAccountId, recipientAccountId, amount));
+            // replays of a completed key are answered before the rate limit is charged
+            Transaction transaction = idempotencyKey == null
+                    ? executeTransfer(senderAccountId, recipientAccountId, amount, null)
+                    : idempotentTransfers.execute(idempotencyKey, senderAccountId, recipientAccountId, amount,
+                            () -> executeTransfer(senderAccountId, recipientAccountId, amount, idempotencyKey));
+            success = true;
+            return transaction;
+        } catch (AccountBusyException e) {
+            transactionMetrics.failed(Failure.ACCOUNT_BUSY);
+            throw e;
+        } catch (AccountServiceUnavailableException | BackoffInterruptedException e) {
+            transactionMetrics.failed(Failure.SERVICE_UNAVAILABLE);
+            throw e;
+        } finally {
+            transactionMetrics.finished(start, success);
+        }
+    }
+
+    /**
+     * With the outbox enabled the transaction is recorded before the accounts are unlocked, in
+     * delta mode too, so the transfers of an account get increasing ids and are recorded in the
+     * order they were applied, which is the order the relay publishes them in. The guard permit is
+     * taken once the account locks are held, so transfers waiting for a busy account do not use up
+     * the concurrency limit of transfers between other accounts.
+     */
+    private Transaction executeTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount, String idempotencyKey) {
+        reject(senderAccountId, recipientAccountId, amount, transferValidator.checkRate(senderAccountId));
+        if (balanceUpdateMode == BalanceUpdateMode.DELTA && !transactionOutbox.isEnabled()) {
+            try (AccountServiceGuard.Permit ignored = accountServiceGuard.acquire()) {
+                applyTransferWithDeltas(senderAccountId, recipientAccountId, amount);
+            }
+        } else {
+            try (AccountLocks.Held held = accountLocks.lock(List.of(senderAccountId, recipientAccountId))) {
+                try (AccountServiceGuard.Permit ignored = accountServiceGuard.acquire()) {
+                    if (balanceUpdateMode == BalanceUpdateMode.DELTA) {
+                        applyTransferWithDeltas(senderAccountId, recipientAccountId, amount);
+                    } else {
+                        applyTransfer(senderAccountId, recipientAccountId, amount);
+                    }
+                }
+                if (transactionOutbox.isEnabled()) {
+                    return recordTransfer(senderAccountId, recipientAccountId, amount, idempotencyKey);
+                }
+            }
+        }
+        return recordTransfer(senderAccountId, recipientAccountId, amount, idempotencyKey);
+    }
+
+    private void reject(Long senderAccountId, Long recipientAccountId, BigDecimal amount, TransferValidator.Rejection rejection) {
+        if (rejection != null) {
+            logger.debug("Transfer from account {} to account {} of {} rejected: {}", senderAccountId, recipientAccountId, amount, rejection);
+            transactionMetrics.failed(rejection.getFailure());
+            throw rejection.exception();
+        }
+    }
+
+    private Transaction recordTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount, String idempotencyKey) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAccountId(senderAccountId);
+        transaction.setRecipientAccountId(recipientAccountId);
+        transaction.setAmount(amount);
+        transaction.setTimestamp(OffsetDateTime.now());
+        transaction.setIdempotencyKey(idempotencyKey);
+        long start = System.nanoTime();
+        Transaction savedTransaction = transactionWriteBehind.isEnabled()
+                ? transactionWriteBehind.submit(transaction)
+                : transactionRecorder.save(transaction);
+        transactionMetrics.record(Stage.TRANSACTION_SAVE, start);
+        logger.info("Transaction successful with transaction id: {}", savedTransaction.getId());
+        return savedTransaction;
+    }
+
+    private void applyTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        long start = System.nanoTime();
+        List<AccountResponse> accounts = accountClient.getAccounts(List.of(senderAccountId, recipientAccountId));
+        transactionMetrics.record(Stage.ACCOUNTS_READ, start);
+        AccountResponse senderAccount = accounts.get(0);
+        AccountResponse recipientAccount = accounts.get(1);
+
+        if (senderAccount == null) {
             logger.error("Sender account not found by Id: {}", senderAccountId);
+            transactionMetrics.failed(Failure.SENDER_NOT_FOUND);
             throw new IllegalArgumentException("Sender account not found");
         }
 
-       try {
-           recipientAccount = restTemplate.getForObject(accountServiceUrl + recipientAccountId, AccountResponse.class);
-       } catch (HttpClientErrorException.NotFound e) {
-           logger.error("Recipient account not found by Id: {}", recipientAccountId);
-           throw new IllegalArgumentException("Recipient account not found");
-       }
+        if (recipientAccount == null) {
+            logger.error("Recipient account not found by Id: {}", recipientAccountId);
+            transactionMetrics.failed(Failure.RECIPIENT_NOT_FOUND);
+            throw new IllegalArgumentException("Recipient account not found");
+        }
 
         if (senderAccount.getBalance().compareTo(amount) <= 0) {
             logger.error("Insufficient funds in sender account with id: {}", senderAccountId);
+            transactionMetrics.failed(Failure.INSUFFICIENT_FUNDS);
             throw new IllegalStateException("Insufficient funds");
         }
 
         senderAccount.setBalance(senderAccount.getBalance().subtract(amount));
         recipientAccount.setBalance(recipientAccount.getBalance().add(amount));
 
-        restTemplate.put(accountServiceUrl + senderAccountId + "/balance", senderAccount.getBalance());
-        restTemplate.put(accountServiceUrl + recipientAccountId + "/balance", recipientAccount.getBalance());
+        start = System.nanoTime();
+        accountClient.updateBalances(List.of(
+                new BalanceUpdate(senderAccountId, senderAccount.getBalance()),
+                new BalanceUpdate(recipientAccountId, recipientAccount.getBalance())));
+        transactionMetrics.record(Stage.BALANCES_WRITE, start);
+    }
 
-        Transaction transaction = new Transaction();
-        transaction.setSenderAccountId(senderAccountId);
-        transaction.setRecipientAccountId(recipientAccountId);
-        transaction.setAmount(amount);
-        transaction.setTimestamp(OffsetDateTime.now());
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        logger.info("Transaction successful with transaction id: {}", savedTransaction.getId());
-        return savedTransaction;
+    /**
+     * Debits the sender conditionally on the version its funds were checked against, re-reading
+     * and re-checking on conflict, then credits the recipient unconditionally since credits
+     * commute. No in-process lock is needed, so transfers on a hot account only contend on
+     * account-service. If the credit fails the debit is refunded.
+     */
+    private void applyTransferWithDeltas(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        long start = System.nanoTime();
+        List<AccountResponse> accounts = accountClient.getAccounts(List.of(senderAccountId, recipientAccountId));
+        transactionMetrics.record(Stage.ACCOUNTS_READ, start);
+        AccountResponse senderAccount = accounts.get(0);
+
+        if (senderAccount == null) {
+            logger.error("Sender account not found by Id: {}", senderAccountId);
+            transactionMetrics.failed(Failure.SENDER_NOT_FOUND);
+            throw new IllegalArgumentException("Sender account not found");
+        }
+
+        if (accounts.get(1) == null) {
+            logger.error("Recipient account not found by Id: {}", recipientAccountId);
+            transactionMetrics.failed(Failure.RECIPIENT_NOT_FOUND);
+            throw new IllegalArgumentException("Recipient account not found");
+        }
+
+        // conflicting debits re-read the sender, which counts as writing the balances
+        start = System.nanoTime();
+        String transferKey = UUID.randomUUID().toString();
+        for (int attempt = 1; ; attempt++) {
+            if (senderAccount.getBalance().compareTo(amount) <= 0) {
+                logger.error("Insufficient funds in sender account with id: {}", senderAccountId);
+                transactionMetrics.failed(Failure.INSUFFICIENT_FUNDS);
+                throw new IllegalStateException("Insufficient funds");
+            }
+            if (accountClient.adjustBalance(senderAccountId, amount.negate(), senderAccount.getVersion(), transferKey + ":debit") != null) {
+                break;
+            }
+            if (attempt >= conflictMaxAttempts) {
+                logger.error("Sender account with id: {} kept changing, giving up after {} attempts", senderAccountId, attempt);
+                throw new AccountBusyException("Account " + senderAccountId + " is busy, please retry");
+            }
+
+            Backoff.pause(conflictBackoff, attempt);
+            senderAccount = accountClient.getAccount(senderAccountId);
+            if (senderAccount == null) {
+                logger.error("Sender account not found by Id: {}", senderAccountId);
+                transactionMetrics.failed(Failure.SENDER_NOT_FOUND);
+                throw new IllegalArgumentException("Sender account not found");
+            }
+        }
+
+        try {
+            accountClient.adjustBalance(recipientAccountId, amount, null, transferKey + ":credit");
+        } catch (RuntimeException e) {
+            logger.error("Credit of recipient account with id: {} failed, refunding sender account with id: {}",
+                    recipientAccountId, senderAccountId, e);
+            try {
+                accountClient.adjustBalance(senderAccountId, amount, null, transferKey + ":refund");
+            } catch (RuntimeException refundFailure) {
+                logger.error("Refund of sender account with id: {} failed", senderAccountId, refundFailure);
+                e.addSuppressed(refundFailure);
+            }
+            throw e;
+        } finally {
+            transactionMetrics.record(Stage.BALANCES_WRITE, start);
+        }
+    }
+
+    /**
+     * Applies the transfers in request order against one snapshot of every account involved,
+     * then writes a single net balance update per account and inserts the transactions in
+     * JDBC batches. The balance updates apply all or nothing: if any of them fails, the balances
+     * already written are put back and every item is reported as failed, since the items that
+     * succeeded were netted against the failed ones. All accounts of the batch stay locked until
+     * the balance updates are written or put back, and with the outbox enabled until the
+     * transactions are recorded. Amounts are rounded to whole cents as in {@link #transfer}.
+     */
+    @Override
+    public List<TransferResult> transferBatch(List<TransactionRequest> transfers) {
+        TransferResult[] results = new TransferResult[transfers.size()];
+        Set<Long> accountIds = new LinkedHashSet<>();
+        // the batch takes one rate limit token per sender, however many of its transfers it carries
+        Map<Long, Boolean> withinRate = new HashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransactionRequest transfer = transfers.get(i);
+            if (transfer.getAmount() != null) {
+                transfer.setAmount(Money.round(transfer.getAmount()));
+            }
+            TransferValidator.Rejection rejection = transferValidator.check(transfer.getSenderAccountId(),
+                    transfer.getRecipientAccountId(), transfer.getAmount());
+            if (rejection == null && !withinRate.computeIfAbsent(transfer.getSenderAccountId(),
+                    senderAccountId -> transferValidator.checkRate(senderAccountId) == null)) {
+                rejection = TransferValidator.Rejection.RATE_LIMITED;
+            }
+            if (rejection != null) {
+                transactionMetrics.failed(rejection.getFailure());
+                results[i] = TransferResult.failed(i, rejection.getMessage());
+                continue;
+            }
+            accountIds.add(transfer.getSenderAccountId());
+            accountIds.add(transfer.getRecipientAccountId());
+        }
+        if (accountIds.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        List<Integer> accepted = new ArrayList<>();
+        Map<Long, RuntimeException> failedUpdates;
+        int saved = -1;
+        try (AccountLocks.Held held = accountLocks.lock(accountIds)) {
+            try (AccountServiceGuard.Permit permit = accountServiceGuard.acquire()) {
+                long start = System.nanoTime();
+                Map<Long, AccountResponse> accounts = accountClient.getAccountsById(accountIds);
+                transactionMetrics.record(Stage.ACCOUNTS_READ, start);
+
+                Map<Long, BigDecimal> balances = new HashMap<>();
+                accounts.forEach((accountId, account) -> balances.put(accountId, account.getBalance()));
+
+                for (int i = 0; i < transfers.size(); i++) {
+                    if (results[i] != null) {
+                        continue;
+                    }
+                    TransactionRequest transfer = transfers.get(i);
+                    Long senderAccountId = transfer.getSenderAccountId();
+                    Long recipientAccountId = transfer.getRecipientAccountId();
+
+                    if (!accounts.containsKey(senderAccountId)) {
+                        transactionMetrics.failed(Failure.SENDER_NOT_FOUND);
+                        results[i] = TransferResult.failed(i, "Sender account not found");
+                        continue;
+                    }
+                    if (!accounts.containsKey(recipientAccountId)) {
+                        transactionMetrics.failed(Failure.RECIPIENT_NOT_FOUND);
+                        results[i] = TransferResult.failed(i, "Recipient account not found");
+                        continue;
+                    }
+                    BigDecimal senderBalance = balances.get(senderAccountId);
+                    if (senderBalance.compareTo(transfer.getAmount()) <= 0) {
+                        transactionMetrics.failed(Failure.INSUFFICIENT_FUNDS);
+                        results[i] = TransferResult.failed(i, "Insufficient funds");
+                        continue;
+                    }
+
+                    balances.put(senderAccountId, senderBalance.subtract(transfer.getAmount()));
+                    balances.merge(recipientAccountId, transfer.getAmount(), BigDecimal::add);
+                    accepted.add(i);
+                }
+
+                start = System.nanoTime();
+                failedUpdates = writeBalances(accounts, balances);
+                transactionMetrics.record(Stage.BALANCES_WRITE, start);
+            }
+            if (transactionOutbox.isEnabled()) {
+                saved = recordBatch(transfers, accepted, !failedUpdates.isEmpty(), results);
+            }
+        }
+        failedUpdates.forEach((accountId, e) ->
+                logger.error("Balance update failed for account with id: {}", accountId, e));
+        if (saved < 0) {
+            saved = recordBatch(transfers, accepted, !failedUpdates.isEmpty(), results);
+        }
+        logger.info("Batch of {} transfers processed, {} successful", transfers.size(), saved);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Inserts the transactions of the accepted items, or fails all of them if the balances could not
+     * be written.
+     *
+     * @return the number of transactions inserted
+     */
+    private int recordBatch(List<TransactionRequest> transfers, List<Integer> accepted, boolean balancesFailed, TransferResult[] results) {
+        OffsetDateTime timestamp = OffsetDateTime.now();
+        List<Transaction> transactions = new ArrayList<>(accepted.size());
+        List<Integer> transactionIndexes = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            TransactionRequest transfer = transfers.get(i);
+            if (balancesFailed) {
+                results[i] = TransferResult.failed(i, "Balance update failed");
+                continue;
+            }
+
+            Transaction transaction = new Transaction();
+            transaction.setSenderAccountId(transfer.getSenderAccountId());
+            transaction.setRecipientAccountId(transfer.getRecipientAccountId());
+            transaction.setAmount(transfer.getAmount());
+            transaction.setTimestamp(timestamp);
+            transactions.add(transaction);
+            transactionIndexes.add(i);
+        }
+
+        long start = System.nanoTime();
+        List<Transaction> savedTransactions = saveInChunks(transactions);
+        transactionMetrics.record(Stage.TRANSACTION_SAVE, start);
+        for (int j = 0; j < savedTransactions.size(); j++) {
+            int index = transactionIndexes.get(j);
+            results[index] = TransferResult.succeeded(index, savedTransactions.get(j));
+        }
+        return savedTransactions.size();
+    }
+
+    /**
+     * Merges two keyset range scans, one per index, instead of a single {@code sender = ? or recipient = ?}
+     * query that could use neither. Each side reads at most one row past the page, so the cost of a
+     * page does not grow with the table or with how far the client has paged.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionPage findTransactions(Long accountId, OffsetDateTime from, OffsetDateTime to, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        TransactionCursor after = cursor != null
+                ? TransactionCursor.decode(cursor)
+                : new TransactionCursor(from != null ? from : MIN_TIMESTAMP, Long.MIN_VALUE);
+        OffsetDateTime before = to != null ? to : MAX_TIMESTAMP;
+
+        List<TransactionView> transactions = new ArrayList<>(limit + 1);
+        try (Stream<TransactionView> sent = transactionRepository.streamSentAfter(accountId, after.timestamp(), after.id(), before, Limit.of(limit + 1));
+             Stream<TransactionView> received = transactionRepository.streamReceivedAfter(accountId, after.timestamp(), after.id(), before, Limit.of(limit + 1))) {
+            Iterator<TransactionView> sentIterator = sent.iterator();
+            Iterator<TransactionView> receivedIterator = received.iterator();
+            TransactionView nextSent = sentIterator.hasNext() ? sentIterator.next() : null;
+            TransactionView nextReceived = receivedIterator.hasNext() ? receivedIterator.next() : null;
+            while (transactions.size() <= limit && (nextSent != null || nextReceived != null)) {
+                int order = nextSent == null ? 1 : nextReceived == null ? -1 : KEYSET_ORDER.compare(nextSent, nextReceived);
+                transactions.add(order <= 0 ? nextSent : nextReceived);
+                if (order <= 0) {
+                    nextSent = sentIterator.hasNext() ? sentIterator.next() : null;
+                }
+                if (order >= 0) {
+                    nextReceived = receivedIterator.hasNext() ? receivedIterator.next() : null;
+                }
+            }
+        }
+
+        TransactionPage page = new TransactionPage();
+        if (transactions.size() > limit) {
+            transactions.remove(limit);
+            page.setNextCursor(TransactionCursor.of(transactions.get(limit - 1)).encode());
+        }
+        page.setTransactions(transactions);
+        return page;
+    }
+
+    private Map<Long, RuntimeException> writeBalances(Map<Long, AccountResponse> accounts, Map<Long, BigDecimal> balances) {
+        if (balanceUpdateMode == BalanceUpdateMode.DELTA) {
+            return writeDeltas(accounts, balances);
+        }
+
+        Map<Long, BigDecimal> changedBalances = new HashMap<>();
+        balances.forEach((accountId, balance) -> {
+            if (balance.compareTo(accounts.get(accountId).getBalance()) != 0) {
+                changedBalances.put(accountId, balance);
+            }
+        });
+        Map<Long, RuntimeException> failures = accountClient.updateBalancesById(changedBalances);
+        if (!failures.isEmpty()) {
+            restoreBalances(accounts, changedBalances.keySet());
+        }
+        return failures;
+    }
+
+    /**
+     * Applies the net debits first, each conditional on the version its funds were checked
+     * against, and the net credits only once every debit went through. Single transfers take no
+     * account locks in delta mode, so a conflicting debit is expected under load. Whatever was
+     * applied before a failure is compensated with adjustments carrying their own idempotency keys.
+     */
+    private Map<Long, RuntimeException> writeDeltas(Map<Long, AccountResponse> accounts, Map<Long, BigDecimal> balances) {
+        Map<Long, BigDecimal> debits = new HashMap<>();
+        Map<Long, BigDecimal> credits = new HashMap<>();
+        Map<Long, Long> expectedVersions = new HashMap<>();
+        balances.forEach((accountId, balance) -> {
+            BigDecimal delta = balance.subtract(accounts.get(accountId).getBalance());
+            if (delta.signum() < 0) {
+                debits.put(accountId, delta);
+                expectedVersions.put(accountId, accounts.get(accountId).getVersion());
+            } else if (delta.signum() > 0) {
+                credits.put(accountId, delta);
+            }
+        });
+
+        String batchKey = UUID.randomUUID().toString();
+        Map<Long, RuntimeException> failures = accountClient.adjustBalancesById(debits, expectedVersions, batchKey + ":debit");
+        if (!failures.isEmpty()) {
+            debits.keySet().removeAll(failures.keySet());
+            compensate(debits, batchKey + ":refund");
+            return failures;
+        }
+
+        failures = accountClient.adjustBalancesById(credits, Map.of(), batchKey + ":credit");
+        if (!failures.isEmpty()) {
+            credits.keySet().removeAll(failures.keySet());
+            compensate(credits, batchKey + ":reverse");
+            compensate(debits, batchKey + ":refund");
+        }
+        return failures;
+    }
+
+    private void compensate(Map<Long, BigDecimal> applied, String idempotencyKeyPrefix) {
+        Map<Long, BigDecimal> reversals = new HashMap<>();
+        applied.forEach((accountId, delta) -> reversals.put(accountId, delta.negate()));
+        accountClient.adjustBalancesById(reversals, Map.of(), idempotencyKeyPrefix).forEach((accountId, e) ->
+                logger.error("Could not reverse adjustment of {} to account with id: {}", applied.get(accountId), accountId, e));
+    }
+
+    /**
+     * Puts the snapshot balances back after a partly failed batch write. The accounts are still
+     * locked, so the snapshot is still current. Failed accounts are restored too, since a failed
+     * PUT may have been applied anyway.
+     */
+    private void restoreBalances(Map<Long, AccountResponse> accounts, Set<Long> accountIds) {
+        Map<Long, BigDecimal> originalBalances = new HashMap<>();
+        for (Long accountId : accountIds) {
+            originalBalances.put(accountId, accounts.get(accountId).getBalance());
+        }
+        accountClient.updateBalancesById(originalBalances).forEach((accountId, e) ->
+                logger.error("Could not restore balance of account with id: {} to {}", accountId, originalBalances.get(accountId), e));
+    }
+
+    private List<Transaction> saveInChunks(List<Transaction> transactions) {
+        if (transactionWriteBehind.isEnabled()) {
+            return transactionWriteBehind.submitAll(transactions);
+        }
+        int chunkSize = Math.max(1, insertChunkSize);
+        List<Transaction> saved = new ArrayList<>(transactions.size());
+        for (int from = 0; from < transactions.size(); from += chunkSize) {
+            saved.addAll(transactionRecorder.saveAll(transactions.subList(from, Math.min(from + chunkSize, transactions.size()))));
+        }
+        return saved;
     }
 }
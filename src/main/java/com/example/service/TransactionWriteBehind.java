@@ -0,0 +1,474 @@
+package com.example.service;
+
+import com.example.client.Backoff;
+import com.example.client.BackoffInterruptedException;
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind persistence of {@link Transaction} records. Transactions get their id up front and
+ * are appended to a local {@link TransactionJournal} before the transfer is acknowledged, then a
+ * single writer thread inserts them in batches of up to {@code batch-size} rows or whatever arrived
+ * within {@code flush-interval}. When the queue stays full for {@code offer-timeout}, or the writer
+ * thread has stopped, the caller inserts its own transactions, which slows producers down to the
+ * speed of the database. Such an insert can overtake queued transactions, so with the
+ * {@link TransactionOutbox} enabled {@code offer-timeout} should be long enough for the writer to
+ * make room; the relay may otherwise publish a later transfer of an account before an earlier one.
+ * Journaled transactions that never reached the database are inserted again on the next start.
+ * A batch still failing after {@code max-attempts} is inserted row by row, so one bad row cannot
+ * hold up the rows queued behind it. The writer retries a row that fails on its own with backoff,
+ * unless it breaks a constraint for good, such as a taken idempotency key; such a row stays in the
+ * journal until the next start.
+ */
+@Component
+public class TransactionWriteBehind implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionWriteBehind.class);
+    private static final int MAX_CONFLICT_ATTEMPTS = 3;
+
+    @Value("${transaction.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transaction.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${transaction.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transaction.write-behind.flush-interval:20ms}")
+    private Duration flushInterval;
+
+    @Value("${transaction.write-behind.offer-timeout:100ms}")
+    private Duration offerTimeout;
+
+    @Value("${transaction.write-behind.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    @Value("${transaction.write-behind.retry-backoff:100ms}")
+    private Duration retryBackoff;
+
+    @Value("${transaction.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${transaction.write-behind.journal.directory:${java.io.tmpdir}/transactionservice/journal}")
+    private Path journalDirectory;
+
+    @Value("${transaction.write-behind.journal.segment-size:16MB}")
+    private DataSize journalSegmentSize;
+
+    @Value("${transaction.write-behind.journal.fsync:false}")
+    private boolean journalFsync;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountActivityProjection accountActivityProjection;
+
+    @Autowired
+    private TransactionOutbox transactionOutbox;
+
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    // rows that failed on their own for a reason that may pass, inserted again by the writer
+    private final Queue<Entry> retries = new ConcurrentLinkedQueue<>();
+    private BlockingQueue<Entry> queue;
+    private TransactionJournal journal;
+    private TransactionTemplate transactionTemplate;
+    private SessionFactoryImplementor sessionFactory;
+    private BeforeExecutionGenerator idGenerator;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile Timer flushTimer;
+    private volatile DistributionSummary batchSizes;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        idGenerator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(Transaction.class).getGenerator();
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        journal = new TransactionJournal(journalDirectory, journalSegmentSize.toBytes(), journalFsync);
+        recover();
+
+        running = true;
+        writer = new Thread(this::drain, "transaction-writer");
+        writer.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assigns the transaction its id and journals it; the row is inserted later.
+     */
+    public Transaction submit(Transaction transaction) {
+        enqueue(List.of(transaction));
+        return transaction;
+    }
+
+    public List<Transaction> submitAll(List<Transaction> transactions) {
+        enqueue(transactions);
+        return transactions;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            logger.warn("Transaction writer did not finish within {}, {} queued transactions stay in the journal",
+                    shutdownTimeout, queue.size());
+        } else {
+            // transactions submitted while the writer was stopping
+            List<Entry> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                flush(remaining, 1);
+            }
+        }
+        journal.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("transaction.write.queue.depth", queue, BlockingQueue::size)
+                .description("Transactions waiting to be inserted")
+                .register(registry);
+        Gauge.builder("transaction.write.journal.segments", journal, TransactionJournal::getSegmentCount)
+                .description("Journal segments holding transactions not yet inserted")
+                .register(registry);
+        FunctionCounter.builder("transaction.write.caller.runs", callerRuns, LongAdder::sum)
+                .description("Transactions inserted by the request thread because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("transaction.write.failed", failedRows, LongAdder::sum)
+                .description("Transactions rejected by a database constraint, which stay in the journal until the next start")
+                .register(registry);
+        Gauge.builder("transaction.write.retry.pending", retries, Queue::size)
+                .description("Transactions that failed to insert and are retried by the writer")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("transaction.write.batch.size")
+                .description("Transactions inserted per flush")
+                .register(registry);
+        flushTimer = Timer.builder("transaction.write.flush")
+                .description("Time to insert and commit one batch of transactions")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private void enqueue(List<Transaction> transactions) {
+        List<Entry> rejected = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            transaction.setId(nextId(transaction));
+            Entry entry = new Entry(transaction, journal.append(transaction));
+            if (!running || !offer(entry)) {
+                rejected.add(entry);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            callerRuns.add(rejected.size());
+            flush(rejected, 1);
+        }
+    }
+
+    private boolean offer(Entry entry) {
+        if (!writer.isAlive()) {
+            return false;
+        }
+        try {
+            return queue.offer(entry, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Long nextId(Transaction transaction) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return (Long) idGenerator.generate((SharedSessionContractImplementor) session, transaction, null, EventType.INSERT);
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        int retryAttempt = 0;
+        long retryAt = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            if (!retries.isEmpty() && System.nanoTime() - retryAt >= 0) {
+                retryAttempt = retry() ? 0 : retryAttempt + 1;
+                retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Backoff.delay(retryBackoff, retryAttempt));
+            }
+            try {
+                Entry first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Transaction writer interrupted, {} queued transactions stay in the journal", queue.size());
+                return;
+            }
+            flush(batch, maxAttempts);
+            batch.clear();
+        }
+        if (!retries.isEmpty() && !retry()) {
+            logger.error("Transaction writer stopped, {} transactions that failed to insert stay in the journal until the next start",
+                    retries.size());
+        }
+    }
+
+    /**
+     * @return whether every row waiting for a retry was inserted
+     */
+    private boolean retry() {
+        List<Entry> due = new ArrayList<>();
+        for (Entry entry; (entry = retries.poll()) != null; ) {
+            due.add(entry);
+        }
+        flushRows(due);
+        return retries.isEmpty();
+    }
+
+    /**
+     * Inserts the batch in one database transaction, retrying with backoff while the writer is
+     * running, then row by row. Transactions that still cannot be inserted stay in the journal.
+     */
+    private void flush(List<Entry> batch, int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                insert(batch.stream().map(Entry::transaction).toList());
+                record(batch.size(), System.nanoTime() - start);
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !running) {
+                    logger.warn("Could not insert {} transactions after {} attempts, inserting them one by one", batch.size(), attempt, e);
+                    flushRows(batch);
+                    return;
+                }
+                logger.warn("Could not insert {} transactions, retrying (attempt {})", batch.size(), attempt, e);
+                try {
+                    Backoff.pause(retryBackoff, attempt);
+                } catch (BackoffInterruptedException interrupted) {
+                    flushRows(batch);
+                    return;
+                }
+            }
+        }
+
+        Map<TransactionJournal.Segment, Integer> committed = new IdentityHashMap<>();
+        batch.forEach(entry -> committed.merge(entry.segment(), 1, Integer::sum));
+        committed.forEach(journal::committed);
+    }
+
+    private void flushRows(List<Entry> batch) {
+        for (Entry entry : batch) {
+            long start = System.nanoTime();
+            try {
+                insert(List.of(entry.transaction()));
+                record(1, System.nanoTime() - start);
+                journal.committed(entry.segment(), 1);
+            } catch (RuntimeException e) {
+                Transaction transaction = entry.transaction();
+                switch (outcome(transaction, e)) {
+                    case INSERTED -> journal.committed(entry.segment(), 1);
+                    case REJECTED -> {
+                        failedRows.increment();
+                        logger.error("Could not insert transaction {}, it stays in the journal until the next start", transaction.getId(), e);
+                    }
+                    case RETRY -> {
+                        retries.add(entry);
+                        logger.warn("Could not insert transaction {}, retrying", transaction.getId(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells a row that was committed after all, or that breaks a constraint for good, from one that
+     * may succeed when inserted again.
+     */
+    private RowOutcome outcome(Transaction transaction, RuntimeException failure) {
+        if (!(failure instanceof DataIntegrityViolationException)) {
+            return RowOutcome.RETRY;
+        }
+        try {
+            if (transactionRepository.existsById(transaction.getId())) {
+                return RowOutcome.INSERTED;
+            }
+            String idempotencyKey = transaction.getIdempotencyKey();
+            return idempotencyKey != null && transactionRepository.findByIdempotencyKey(idempotencyKey).isPresent()
+                    ? RowOutcome.REJECTED
+                    : RowOutcome.RETRY;
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+            return RowOutcome.RETRY;
+        }
+    }
+
+    /**
+     * Like {@link TransactionRecorder}, runs the insert again when it lost the race to create a day's
+     * activity totals row.
+     */
+    private void insert(List<Transaction> transactions) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    transactions.forEach(entityManager::persist);
+                    accountActivityProjection.record(transactions);
+                    transactionOutbox.append(transactions);
+                });
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_CONFLICT_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Retrying insert of transactions after a conflicting insert (attempt {})", attempt, e);
+            }
+        }
+    }
+
+    private void record(int size, long nanos) {
+        Timer timer = flushTimer;
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            batchSizes.record(size);
+        }
+    }
+
+    /**
+     * Inserts the journaled transactions of a previous run that are not in the database yet. Rows
+     * that cannot be inserted on their own are journaled again and handed to the writer, so they
+     * are retried rather than lost or keeping the service from starting.
+     */
+    private void recover() {
+        List<Transaction> journaled = journal.recover();
+        if (journaled.isEmpty()) {
+            return;
+        }
+        int recovered = 0;
+        for (int from = 0; from < journaled.size(); from += batchSize) {
+            List<Transaction> chunk = journaled.subList(from, Math.min(from + batchSize, journaled.size()));
+            Set<Long> existing = new HashSet<>();
+            transactionRepository.findAllById(chunk.stream().map(Transaction::getId).toList())
+                    .forEach(transaction -> existing.add(transaction.getId()));
+            List<Transaction> missing = chunk.stream().filter(transaction -> !existing.contains(transaction.getId())).toList();
+            if (missing.isEmpty()) {
+                continue;
+            }
+            try {
+                insert(missing);
+                recovered += missing.size();
+            } catch (RuntimeException e) {
+                logger.warn("Could not insert {} journaled transactions, inserting them one by one", missing.size(), e);
+                for (Transaction transaction : missing) {
+                    try {
+                        insert(List.of(transaction));
+                        recovered++;
+                    } catch (RuntimeException rowFailure) {
+                        switch (outcome(transaction, rowFailure)) {
+                            case INSERTED -> recovered++;
+                            case REJECTED -> {
+                                failedRows.increment();
+                                journal.append(transaction);
+                                logger.error("Could not insert journaled transaction {}, it stays in the journal until the next start",
+                                        transaction.getId(), rowFailure);
+                            }
+                            case RETRY -> {
+                                retries.add(new Entry(transaction, journal.append(transaction)));
+                                logger.warn("Could not insert journaled transaction {}, retrying", transaction.getId(), rowFailure);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        journal.deleteRecovered();
+        logger.info("Recovered {} of {} journaled transactions", recovered, journaled.size());
+    }
+
+    private record Entry(Transaction transaction, TransactionJournal.Segment segment) {
+    }
+
+    private enum RowOutcome {
+        INSERTED, REJECTED, RETRY
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.service;
+
+/**
+ * A transfer turned down by {@link TransferValidator} before any remote call. Every
+ * {@link TransferValidator.Rejection} has one shared instance without a stack trace, so rejecting
+ * costs no more than returning its code.
+ */
+public class TransferRejectedException extends RuntimeException {
+    private final TransferValidator.Rejection rejection;
+
+    TransferRejectedException(TransferValidator.Rejection rejection) {
+        super(rejection.getMessage(), null, false, false);
+        this.rejection = rejection;
+    }
+
+    public TransferValidator.Rejection getRejection() {
+        return rejection;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.service;
+
+import com.example.client.MissingAccounts;
+import com.example.entity.Money;
+import com.example.service.TransactionMetrics.Failure;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Checks a transfer before account-service is called: the amount, a transfer to the sender's
+ * own account and accounts account-service recently answered 404 for. Separately, when enabled,
+ * {@link #checkRate} keeps a token bucket of {@code per-sender} requests per second with bursts
+ * of up to {@code burst} for each sender. Every check answers with a code rather than an exception.
+ */
+@Component
+public class TransferValidator {
+
+    public enum Rejection {
+        MISSING_AMOUNT("Transfer amount is required", Failure.INVALID_AMOUNT),
+        NON_POSITIVE_AMOUNT("Transfer amount must be greater than zero", Failure.INVALID_AMOUNT),
+        AMOUNT_TOO_LARGE("Transfer amount is too large", Failure.INVALID_AMOUNT),
+        SELF_TRANSFER("Sender and recipient must be different accounts", Failure.SELF_TRANSFER),
+        SENDER_NOT_FOUND("Sender account not found", Failure.SENDER_NOT_FOUND),
+        RECIPIENT_NOT_FOUND("Recipient account not found", Failure.RECIPIENT_NOT_FOUND),
+        RATE_LIMITED("Too many transfers from the sender account, please retry later", Failure.RATE_LIMITED);
+
+        private final String message;
+        private final Failure failure;
+        private final TransferRejectedException exception;
+
+        Rejection(String message, Failure failure) {
+            this.message = message;
+            this.failure = failure;
+            this.exception = new TransferRejectedException(this);
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Failure getFailure() {
+            return failure;
+        }
+
+        public TransferRejectedException exception() {
+            return exception;
+        }
+    }
+
+    @Value("${transaction.rate-limit.enabled:false}")
+    private boolean rateLimitEnabled;
+
+    @Value("${transaction.rate-limit.per-sender:20}")
+    private double perSender;
+
+    @Value("${transaction.rate-limit.burst:40}")
+    private int burst;
+
+    @Value("${transaction.rate-limit.maximum-senders:100000}")
+    private long maximumSenders;
+
+    @Autowired
+    private MissingAccounts missingAccounts;
+
+    private Cache<Long, TokenBucket> buckets;
+
+    @PostConstruct
+    public void init() {
+        if (rateLimitEnabled) {
+            // a bucket left alone this long is full again, so forgetting it changes nothing
+            Duration refill = Duration.ofNanos((long) Math.ceil(burst / perSender * 1e9));
+            buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumSenders)
+                    .expireAfterAccess(refill)
+                    .build();
+        }
+    }
+
+    /**
+     * The amount is checked as it is transferred, rounded to whole cents.
+     *
+     * @return why the transfer must be rejected, or {@code null} to go ahead with it
+     */
+    public Rejection check(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        if (amount == null) {
+            return Rejection.MISSING_AMOUNT;
+        }
+        BigDecimal cents = Money.round(amount);
+        if (cents.signum() <= 0) {
+            return Rejection.NON_POSITIVE_AMOUNT;
+        }
+        if (!Money.isWholeCents(cents)) {
+            return Rejection.AMOUNT_TOO_LARGE;
+        }
+        if (Objects.equals(senderAccountId, recipientAccountId)) {
+            return Rejection.SELF_TRANSFER;
+        }
+        if (missingAccounts.contains(senderAccountId)) {
+            return Rejection.SENDER_NOT_FOUND;
+        }
+        if (missingAccounts.contains(recipientAccountId)) {
+            return Rejection.RECIPIENT_NOT_FOUND;
+        }
+        return null;
+    }
+
+    /**
+     * Takes one token from the sender's bucket. Callers charge a request once, not once per
+     * transfer it carries, and only when it is about to be executed rather than replayed.
+     *
+     * @return {@link Rejection#RATE_LIMITED}, or {@code null} to go ahead with the request
+     */
+    public Rejection checkRate(Long senderAccountId) {
+        if (buckets != null && !buckets.get(senderAccountId, id -> new TokenBucket(burst)).tryTake(perSender, burst)) {
+            return Rejection.RATE_LIMITED;
+        }
+        return null;
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private TokenBucket(int burst) {
+            tokens = burst;
+        }
+
+        private synchronized boolean tryTake(double perSecond, int burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perSecond / 1e9);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+-- schema as generated by Hibernate before migrations were introduced
+
+create sequence transaction_seq start with 1 increment by 50;
+
+create table transaction (
+    id bigint not null,
+    sender_account_id bigint,
+    recipient_account_id bigint,
+    amount numeric(38,2),
+    timestamp timestamp(6) with time zone,
+    idempotency_key varchar(100),
+    primary key (id),
+    constraint uk_transaction_idempotency_key unique (idempotency_key)
+);
+
+create index idx_transaction_sender_timestamp on transaction (sender_account_id, timestamp, id);
+create index idx_transaction_recipient_timestamp on transaction (recipient_account_id, timestamp, id);
+create index idx_transaction_timestamp on transaction (timestamp, id);
+
+create table account_activity (
+    account_id bigint not null,
+    activity_date date not null,
+    sent_count bigint not null,
+    sent_amount numeric(38,2),
+    received_count bigint not null,
+    received_amount numeric(38,2),
+    primary key (activity_date, account_id)
+);
@@ -0,0 +1,18 @@
+-- outbox of completed transfers, written with the transaction rows and deleted once published
+
+create table transaction_event (
+    id bigint not null,
+    sender_account_id bigint,
+    recipient_account_id bigint,
+    amount numeric(38,2),
+    timestamp timestamp(6) with time zone,
+    primary key (id)
+);
+
+create table transaction_event_checkpoint (
+    sink varchar(50) not null,
+    last_event_id bigint not null,
+    published_count bigint not null,
+    updated_at timestamp(6) with time zone,
+    primary key (sink)
+);
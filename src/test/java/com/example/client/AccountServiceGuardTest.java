@@ -0,0 +1,104 @@
+package com.example.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountServiceGuardTest {
+    private static final long FAST = Duration.ofMillis(5).toNanos();
+
+    private AccountServiceGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new AccountServiceGuard();
+        ReflectionTestUtils.setField(guard, "enabled", true);
+        ReflectionTestUtils.setField(guard, "slidingWindowSize", 10);
+        ReflectionTestUtils.setField(guard, "minimumCalls", 4);
+        ReflectionTestUtils.setField(guard, "openDuration", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(guard, "halfOpenTrials", 2);
+        ReflectionTestUtils.setField(guard, "slowCallDuration", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(guard, "initialLimit", 4);
+        ReflectionTestUtils.setField(guard, "minLimit", 2);
+        ReflectionTestUtils.setField(guard, "maxLimit", 8);
+        ReflectionTestUtils.setField(guard, "backoffRatio", 0.5);
+        guard.init();
+    }
+
+    @Test
+    void whenFailureRateReachesThreshold_circuitOpensThenRecoversThroughHalfOpen() throws InterruptedException {
+        guard.record(false, FAST);
+        guard.record(true, FAST);
+        guard.record(false, FAST);
+        assertEquals(AccountServiceGuard.State.CLOSED, guard.getState());
+
+        guard.record(true, FAST);
+        assertEquals(AccountServiceGuard.State.OPEN, guard.getState());
+        assertThrows(AccountServiceUnavailableException.class, guard::acquire);
+
+        Thread.sleep(60);
+        try (AccountServiceGuard.Permit first = guard.acquire(); AccountServiceGuard.Permit second = guard.acquire()) {
+            assertEquals(AccountServiceGuard.State.HALF_OPEN, guard.getState());
+            // only half-open-trials units of work are let through while probing
+            assertThrows(AccountServiceUnavailableException.class, guard::acquire);
+            guard.record(false, FAST);
+            guard.record(false, FAST);
+        }
+        assertEquals(AccountServiceGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void whenTrialCallFails_circuitOpensAgain() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            guard.record(true, FAST);
+        }
+        Thread.sleep(60);
+        try (AccountServiceGuard.Permit ignored = guard.acquire()) {
+            guard.record(true, FAST);
+        }
+        assertEquals(AccountServiceGuard.State.OPEN, guard.getState());
+        assertThrows(AccountServiceUnavailableException.class, guard::acquire);
+    }
+
+    @Test
+    void whenTrialPermitsCloseWithoutCalls_moreTrialsAreAdmitted() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            guard.record(true, FAST);
+        }
+        Thread.sleep(60);
+        for (int i = 0; i < 3; i++) {
+            // e.g. timed out waiting for an account lock before calling account-service
+            guard.acquire().close();
+            guard.acquire().close();
+        }
+        assertEquals(AccountServiceGuard.State.HALF_OPEN, guard.getState());
+
+        try (AccountServiceGuard.Permit first = guard.acquire(); AccountServiceGuard.Permit second = guard.acquire()) {
+            guard.record(false, FAST);
+            guard.record(false, FAST);
+        }
+        assertEquals(AccountServiceGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void whenCallsAreSlow_limitShrinksAndExcessWorkIsRejected() {
+        AccountServiceGuard.Permit first = guard.acquire();
+        guard.record(false, Duration.ofMillis(200).toNanos());
+        AccountServiceGuard.Permit second = guard.acquire();
+        assertEquals(2.0, guard.getLimit());
+
+        assertThrows(AccountServiceUnavailableException.class, guard::acquire);
+        first.close();
+        second.close();
+
+        // each healthy call raises the limit by 1 / limit: 2 -> 2.5 -> 2.9
+        guard.record(false, FAST);
+        guard.record(false, FAST);
+        assertEquals(2.9, guard.getLimit(), 0.001);
+        assertEquals(AccountServiceGuard.State.CLOSED, guard.getState());
+    }
+}
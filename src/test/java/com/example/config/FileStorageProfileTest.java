@@ -0,0 +1,56 @@
+package com.example.config;
+
+import com.example.TransactionserviceApplication;
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import com.example.service.TransactionRecorder;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileStorageProfileTest {
+    @TempDir
+    private Path dataDirectory;
+
+    @Test
+    void whenRestarted_transactionsAreStillThere() {
+        Transaction saved;
+        int migrations;
+        try (ConfigurableApplicationContext context = start()) {
+            Transaction transaction = new Transaction();
+            transaction.setSenderAccountId(1L);
+            transaction.setRecipientAccountId(2L);
+            transaction.setAmount(new BigDecimal("12.34"));
+            transaction.setTimestamp(OffsetDateTime.now(ZoneOffset.UTC));
+            saved = context.getBean(TransactionRecorder.class).save(transaction);
+            assertEquals(0, context.getBean(Flyway.class).info().pending().length);
+            migrations = context.getBean(Flyway.class).info().applied().length;
+        }
+        assertTrue(Files.exists(dataDirectory.resolve("transactiondb.mv.db")));
+
+        try (ConfigurableApplicationContext context = start()) {
+            Transaction found = context.getBean(TransactionRepository.class).findById(saved.getId()).orElseThrow();
+            assertEquals(0, new BigDecimal("12.34").compareTo(found.getAmount()));
+            // the migrations ran once, the second start only validated the schema
+            assertEquals(migrations, context.getBean(Flyway.class).info().applied().length);
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(TransactionserviceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("file")
+                .run("--transaction.data.directory=" + dataDirectory, "--spring.main.banner-mode=off");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.config;
+
+import com.example.client.AccountClient;
+import com.example.support.StubAccountServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "account.client.http.engine=jdk")
+public class JdkRestTemplateConfigTest {
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+
+    @Autowired
+    private AccountClient accountClient;
+
+    @Autowired
+    private ClientHttpRequestFactory accountRequestFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void accountServiceProperties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenJdkEngine_plainHttpSpokenWithoutPoolMetrics() {
+        accountServer.addAccount(1L, new BigDecimal("100"));
+
+        accountClient.updateBalance(1L, new BigDecimal("90"));
+
+        assertThat(accountClient.getAccount(1L).getBalance(), comparesEqualTo(new BigDecimal("90")));
+        HttpClient httpClient = (HttpClient) ReflectionTestUtils.getField(accountRequestFactory, "httpClient");
+        assertEquals(HttpClient.Version.HTTP_1_1, httpClient.version());
+        assertNull(meterRegistry.find("account.client.pool.connections").gauge());
+    }
+}
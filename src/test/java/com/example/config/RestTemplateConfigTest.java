@@ -0,0 +1,75 @@
+package com.example.config;
+
+import com.example.client.AccountClient;
+import com.example.dto.AccountResponse;
+import com.example.support.StubAccountServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "account.client.http.read-timeout=300ms")
+public class RestTemplateConfigTest {
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+
+    @Autowired
+    private AccountClient accountClient;
+
+    @Autowired
+    private PoolingHttpClientConnectionManager accountConnectionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void accountServiceProperties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountServer.setDelay(Duration.ZERO);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenGetAccount_connectionIsReturnedToPool() {
+        accountServer.addAccount(1L, new BigDecimal("100"));
+
+        AccountResponse account = accountClient.getAccount(1L);
+        accountClient.updateBalance(1L, new BigDecimal("90"));
+
+        assertThat(account.getBalance(), comparesEqualTo(new BigDecimal("100")));
+        assertThat(accountServer.getBalance(1L), comparesEqualTo(new BigDecimal("90")));
+        assertNull(accountClient.getAccount(404L));
+        assertEquals(0, accountConnectionManager.getTotalStats().getLeased());
+        assertTrue(accountConnectionManager.getTotalStats().getAvailable() >= 1);
+        assertEquals(accountConnectionManager.getTotalStats().getAvailable(),
+                meterRegistry.get("account.client.pool.connections").tag("state", "available").gauge().value());
+    }
+
+    @Test
+    void whenAccountServiceStalls_readTimesOut() {
+        accountServer.addAccount(2L, new BigDecimal("100"));
+        accountServer.setDelay(Duration.ofSeconds(2));
+
+        assertThrows(ResourceAccessException.class, () -> accountClient.getAccount(2L));
+    }
+}
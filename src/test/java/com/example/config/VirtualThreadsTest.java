@@ -0,0 +1,112 @@
+package com.example.config;
+
+import com.example.support.StubAccountServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "account.service.concurrent=true",
+        "account.service.guard.initial-limit=200",
+        "account.service.guard.max-limit=200"
+})
+public class VirtualThreadsTest {
+    private static final int TRANSFERS = 100;
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ServletWebServerApplicationContext webServerContext;
+
+    @DynamicPropertySource
+    static void accountServiceProperties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenEnabled_tomcatHandlesRequestsOnVirtualThreads() {
+        TomcatWebServer webServer = (TomcatWebServer) webServerContext.getWebServer();
+
+        assertThat(webServer.getTomcat().getConnector().getProtocolHandler().getExecutor(), instanceOf(VirtualThreadExecutor.class));
+    }
+
+    @Test
+    void whenTransfersWaitOnAccountService_carrierThreadsAreNotPinned() throws Exception {
+        for (long id = 1; id <= 2 * TRANSFERS; id++) {
+            accountServer.addAccount(id, new BigDecimal("1000"));
+        }
+        accountServer.setDelay(Duration.ofMillis(20));
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        Path dump = Files.createTempFile("pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < TRANSFERS; i++) {
+                    long sender = 1 + i;
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/transactions/transfer"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"senderAccountId\":" + sender + ",\"recipientAccountId\":" + (sender + TRANSFERS) + ",\"amount\":1}"))
+                            .build();
+                    responses.add(executor.submit(() -> client.send(request, HttpResponse.BodyHandlers.ofString())));
+                }
+            }
+            for (Future<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.get().statusCode(), response.get().body());
+            }
+
+            recording.stop();
+            recording.dump(dump);
+        } finally {
+            accountServer.setDelay(Duration.ZERO);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+        assertEquals(List.of(), pinned.stream()
+                .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+                .map(event -> event.getStackTrace().getFrames().toString()).toList());
+        assertThat(accountServer.getBalance(1L), comparesEqualTo(new BigDecimal("999")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.controller;
+
+import com.example.client.AccountServiceGuard;
+import com.example.support.StubAccountServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "account.client.http.read-timeout=500ms",
+        "account.service.guard.minimum-calls=4",
+        "account.service.guard.sliding-window-size=10",
+        "account.service.guard.slow-call-duration=200ms",
+        "account.service.guard.open-duration=300ms",
+        "account.service.guard.half-open-trials=2",
+        "account.service.guard.initial-limit=4",
+        "account.service.guard.min-limit=2"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class AccountServiceOverloadTest {
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AccountServiceGuard accountServiceGuard;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void accountServiceProperties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        accountServer.setFailing(false);
+        accountServer.setDelay(Duration.ZERO);
+        // probe with existing accounts, a 404 would reject them without a call for the next test
+        accountServer.addAccount(1L, new BigDecimal("1000"));
+        accountServer.addAccount(2L, new BigDecimal("1000"));
+        // let the circuit close again for the next test
+        while (accountServiceGuard.getState() != AccountServiceGuard.State.CLOSED) {
+            Thread.sleep(350);
+            transfer(1L, 2L);
+        }
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenAccountServiceFails_circuitOpensAndTransfersAreRejectedUntilItRecovers() throws Exception {
+        accountServer.addAccount(1L, new BigDecimal("1000"));
+        accountServer.addAccount(2L, new BigDecimal("1000"));
+        accountServer.setFailing(true);
+        double opened = transitions("open");
+
+        // at most a window's worth of failures, fewer when the window holds no earlier calls
+        for (int i = 0; i < 10 && accountServiceGuard.getState() == AccountServiceGuard.State.CLOSED; i++) {
+            assertEquals(500, transfer(1L, 2L).getResponse().getStatus());
+        }
+        assertEquals(AccountServiceGuard.State.OPEN, accountServiceGuard.getState());
+        assertEquals(opened + 1, transitions("open"));
+
+        int requests = accountServer.getRequestCount();
+        long start = System.nanoTime();
+        mockMvc.perform(post("/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":10}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message", containsString("unavailable")));
+        assertThat(System.nanoTime() - start, lessThan(Duration.ofMillis(100).toNanos()));
+        assertEquals(requests, accountServer.getRequestCount());
+
+        accountServer.setFailing(false);
+        Thread.sleep(350);
+        assertEquals(200, transfer(1L, 2L).getResponse().getStatus());
+        assertEquals(200, transfer(1L, 2L).getResponse().getStatus());
+        assertEquals(AccountServiceGuard.State.CLOSED, accountServiceGuard.getState());
+        assertThat(accountServer.getBalance(1L), comparesEqualTo(new BigDecimal("980")));
+        assertTrue(meterRegistry.get("account.client.rejections").tag("reason", "circuit-open").functionCounter().count() >= 1);
+        assertTrue(meterRegistry.get("transaction.failures").tag("reason", "service_unavailable").functionCounter().count() >= 1);
+    }
+
+    @Test
+    void whenAccountServiceIsSlow_excessTransfersAreRejectedWithoutWaiting() throws Exception {
+        for (long id = 11; id <= 30; id++) {
+            accountServer.addAccount(id, new BigDecimal("1000"));
+        }
+        accountServer.setDelay(Duration.ofMillis(100));
+
+        List<Future<MvcResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(10)) {
+            for (long id = 11; id <= 30; id += 2) {
+                long sender = id;
+                results.add(executor.submit(() -> transfer(sender, sender + 1)));
+            }
+        }
+
+        int succeeded = 0;
+        int rejected = 0;
+        for (Future<MvcResult> result : results) {
+            int status = result.get().getResponse().getStatus();
+            succeeded += status == 200 ? 1 : 0;
+            rejected += status == 503 ? 1 : 0;
+        }
+        assertTrue(succeeded >= 1);
+        assertTrue(rejected >= 1);
+        assertEquals(results.size(), succeeded + rejected);
+        assertTrue(meterRegistry.get("account.client.rejections").tag("reason", "limit").functionCounter().count() >= rejected);
+        assertEquals(0, meterRegistry.get("account.client.concurrency.in-flight").gauge().value());
+    }
+
+    private MvcResult transfer(Long sender, Long recipient) throws Exception {
+        return mockMvc.perform(post("/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":" + sender + ",\"recipientAccountId\":" + recipient + ",\"amount\":10}"))
+                .andReturn();
+    }
+
+    private double transitions(String state) {
+        return meterRegistry.get("account.client.circuit.transitions").tag("state", state).functionCounter().count();
+    }
+}
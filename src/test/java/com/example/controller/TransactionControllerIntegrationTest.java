@@ -1,29 +1,51 @@
 package com.example.controller;
 
+import com.example.client.Backoff;
 import com.example.dto.AccountResponse;
+import com.example.entity.Transaction;
 import com.example.repository.TransactionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 public class TransactionControllerIntegrationTest {
 
     @Autowired
@@ -35,6 +57,15 @@ public class TransactionControllerIntegrationTest {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${account.service.url}")
+    private String accountServiceUrl;
+
     @BeforeEach
     void setUp() {
         transactionRepository.deleteAll();
@@ -67,6 +98,40 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(jsonPath("$.recipientAccountId", is(recipient.getId().intValue())));
     }
 
+    @Test
+    void whenTransfer_stagesAndFailuresExposedToPrometheus() throws Exception {
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(BigDecimal.valueOf(50));
+
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(BigDecimal.valueOf(500));
+
+        when(restTemplate.getForObject(any(String.class), eq(AccountResponse.class)))
+                .thenReturn(sender, recipient, sender, recipient);
+        double insufficientFunds = meterRegistry.get("transaction.failures").tag("reason", "insufficient_funds").functionCounter().count();
+        long saves = meterRegistry.get("transaction.transfer.stage").tag("stage", "transaction.save").timer().count();
+
+        mockMvc.perform(post("/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":10}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":100}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(insufficientFunds + 1, meterRegistry.get("transaction.failures").tag("reason", "insufficient_funds").functionCounter().count());
+        assertEquals(saves + 1, meterRegistry.get("transaction.transfer.stage").tag("stage", "transaction.save").timer().count());
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("transaction_transfer_stage_seconds_bucket{stage=\"accounts.read\"")))
+                .andExpect(content().string(containsString("transaction_transfer_seconds_count{outcome=\"failure\"}")))
+                .andExpect(content().string(containsString("account_client_requests_seconds_count{operation=\"put\",outcome=\"success\"}")))
+                .andExpect(content().string(containsString("transaction_transfer_active 0")));
+    }
+
     @Test
     void whenTransfer_invalidInput() throws Exception {
         AccountResponse recipient = new AccountResponse();
@@ -86,6 +151,24 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(jsonPath("$.senderAccountId", is("Send ID is required")));
     }
 
+    @Test
+    void whenTransfer_rejectedBeforeAccountService() throws Exception {
+        mockMvc.perform(post("/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":1,\"recipientAccountId\":2}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.amount", is("Transfer amount is required")));
+
+        mockMvc.perform(post("/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":1,\"recipientAccountId\":1,\"amount\":100}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", is("BAD_REQUEST")))
+                .andExpect(jsonPath("$.message", is("Sender and recipient must be different accounts")));
+
+        verifyNoInteractions(restTemplate);
+    }
+
     @Test
     void whenTransfer_insufficientFunds() throws Exception {
         AccountResponse sender = new AccountResponse();
@@ -130,6 +213,25 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(jsonPath("$.message", is("Sender account not found")));
     }
 
+    @Test
+    void whenTransferInterruptedWhileBackingOff_serviceUnavailable() throws Exception {
+        when(restTemplate.getForObject(any(String.class), eq(AccountResponse.class))).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            Backoff.pause(Duration.ofMillis(10), 1);
+            return null;
+        });
+
+        try {
+            mockMvc.perform(post("/transactions/transfer")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":100}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.status", is("SERVICE_UNAVAILABLE")));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
     @Test
     void whenTransfer_recipientNotFound() throws Exception {
         AccountResponse sender = new AccountResponse();
@@ -148,4 +250,183 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(jsonPath("$.status", is("BAD_REQUEST")))
                 .andExpect(jsonPath("$.message", is("Recipient account not found")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenTransferReplayedWithIdempotencyKey_appliedOnce() throws Exception {
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(BigDecimal.valueOf(1000));
+
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(BigDecimal.valueOf(500));
+
+        when(restTemplate.getForObject(any(String.class), eq(AccountResponse.class)))
+                .thenReturn(sender, recipient);
+        doNothing().when(restTemplate).put(any(String.class), any(BigDecimal.class));
+
+        String body = "{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":100}";
+        String first = mockMvc.perform(post("/transactions/transfer")
+                        .header("Idempotency-Key", "replay-test")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(post("/transactions/transfer")
+                        .header("Idempotency-Key", "replay-test")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().json(first));
+
+        mockMvc.perform(post("/transactions/transfer")
+                        .header("Idempotency-Key", "replay-test")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":200}"))
+                .andExpect(status().isBadRequest());
+
+        verify(restTemplate, times(1)).put(eq(accountServiceUrl + "1/balance"), any(BigDecimal.class));
+        assertEquals(1, transactionRepository.count());
+    }
+
+    @Test
+    void whenTransferBatch_perItemResults() throws Exception {
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(BigDecimal.valueOf(150));
+
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(BigDecimal.valueOf(500));
+
+        when(restTemplate.getForObject(accountServiceUrl + 1, AccountResponse.class)).thenReturn(sender);
+        when(restTemplate.getForObject(accountServiceUrl + 2, AccountResponse.class)).thenReturn(recipient);
+
+        mockMvc.perform(post("/transactions/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transfers\":["
+                                + "{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":100},"
+                                + "{\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":100},"
+                                + "{\"senderAccountId\":999,\"recipientAccountId\":2,\"amount\":10},"
+                                + "{\"senderAccountId\":2,\"recipientAccountId\":1,\"amount\":20}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded", is(2)))
+                .andExpect(jsonPath("$.failed", is(2)))
+                .andExpect(jsonPath("$.results[0].status", is("SUCCEEDED")))
+                .andExpect(jsonPath("$.results[0].transaction.id").exists())
+                .andExpect(jsonPath("$.results[1].status", is("FAILED")))
+                .andExpect(jsonPath("$.results[1].message", is("Insufficient funds")))
+                .andExpect(jsonPath("$.results[2].message", is("Sender account not found")))
+                .andExpect(jsonPath("$.results[3].status", is("SUCCEEDED")));
+
+        verify(restTemplate).put(accountServiceUrl + 1 + "/balance", BigDecimal.valueOf(70));
+        verify(restTemplate).put(accountServiceUrl + 2 + "/balance", BigDecimal.valueOf(580));
+        assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    void whenTransferBatch_invalidItem() throws Exception {
+        mockMvc.perform(post("/transactions/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transfers\":[{\"recipientAccountId\":2,\"amount\":100}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['transfers[0].senderAccountId']", is("Send ID is required")));
+    }
+
+    @Test
+    void whenFindTransactions_pagesThroughSentAndReceivedInTimeOrder() throws Exception {
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T10:00:00Z");
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = i % 2 == 0 ? save(1L, 2L, start.plusMinutes(i)) : save(3L, 1L, start.plusMinutes(i));
+            expected.add(transaction.getId());
+        }
+        save(2L, 3L, start.plusMinutes(2));
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = "/transactions?accountId=1&limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            JsonNode page = objectMapper.readTree(mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("transactions").forEach(transaction -> ids.add(transaction.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, ids);
+        assertEquals(3, pages);
+
+        mockMvc.perform(get("/transactions")
+                        .param("accountId", "1")
+                        .param("from", "2024-05-01T10:01:00Z")
+                        .param("to", "2024-05-01T10:03:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions", hasSize(2)))
+                .andExpect(jsonPath("$.transactions[0].id", is(expected.get(1).intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    void whenFindTransactions_invalidParameters() throws Exception {
+        mockMvc.perform(get("/transactions").param("accountId", "1").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Invalid cursor")));
+
+        mockMvc.perform(get("/transactions").param("accountId", "1").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/transactions"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenExport_streamsRangeAsNdjsonAndCsv() throws Exception {
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T00:00:00Z");
+        Transaction first = save(1L, 2L, start);
+        Transaction second = save(2L, 3L, start.plusHours(23));
+        save(3L, 1L, start.plusDays(1));
+
+        MvcResult ndjson = mockMvc.perform(get("/transactions/export")
+                        .param("from", "2024-05-01T00:00:00Z")
+                        .param("to", "2024-05-02T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(first.getId(), objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals(second.getId(), objectMapper.readTree(lines[1]).get("id").asLong());
+
+        MvcResult csv = mockMvc.perform(get("/transactions/export")
+                        .param("from", "2024-05-01T00:00:00Z")
+                        .param("to", "2024-05-02T00:00:00Z")
+                        .param("format", "csv"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(content().string("id,senderAccountId,recipientAccountId,amount,timestamp\n"
+                        + first.getId() + ",1,2,10.00,2024-05-01T00:00Z\n"
+                        + second.getId() + ",2,3,10.00,2024-05-01T23:00Z\n"));
+
+        mockMvc.perform(get("/transactions/export")
+                        .param("from", "2024-05-01T00:00:00Z")
+                        .param("to", "2024-05-02T00:00:00Z")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Transaction save(Long senderAccountId, Long recipientAccountId, OffsetDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAccountId(senderAccountId);
+        transaction.setRecipientAccountId(recipientAccountId);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setTimestamp(timestamp);
+        return transactionRepository.save(transaction);
+    }
+}
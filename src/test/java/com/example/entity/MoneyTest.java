@@ -0,0 +1,57 @@
+package com.example.entity;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void whenParsed_matchesBigDecimal() {
+        for (String amount : new String[]{"0", "1", "-1", "0.5", "12.34", "-0.05", "1.000", "+7.10", "1e2", "2.5E-1", "92233720368547758.07"}) {
+            assertEquals(Money.of(new BigDecimal(amount)), Money.parse(amount), amount);
+            assertEquals(0, new BigDecimal(amount).compareTo(Money.parse(amount).toBigDecimal()), amount);
+        }
+        assertEquals("-0.05", Money.parse("-.05").toString());
+        assertEquals("1234.50", Money.parse("1234.5").toString());
+    }
+
+    @Test
+    void whenFractionOfCent_rejectedInsteadOfRounded() {
+        assertThrows(ArithmeticException.class, () -> Money.parse("0.001"));
+        assertThrows(ArithmeticException.class, () -> Money.parse("1.005"));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.125")));
+        assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-"));
+
+        assertFalse(Money.isWholeCents(new BigDecimal("0.125")));
+        assertFalse(Money.isWholeCents(new BigDecimal("92233720368547758.08")));
+        assertTrue(Money.isWholeCents(new BigDecimal("1.000")));
+        assertTrue(Money.isWholeCents(new BigDecimal("1e2")));
+        assertTrue(Money.isWholeCents(new BigDecimal("-92233720368547758.08")));
+    }
+
+    @Test
+    void whenArithmeticOverflows_throws() {
+        Money max = Money.ofCents(Long.MAX_VALUE);
+        assertEquals(Money.parse("0.30"), Money.parse("0.10").add(Money.parse("0.20")));
+        assertEquals(-1, Money.parse("0.10").subtract(Money.parse("0.20")).signum());
+        assertThrows(ArithmeticException.class, () -> max.add(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).negate());
+    }
+
+    @Test
+    void whenSerializedToJson_writtenAsPlainNumber() throws Exception {
+        assertEquals("[12.30,-0.05]", objectMapper.writeValueAsString(new Money[]{Money.parse("12.3"), Money.parse("-0.05")}));
+        assertEquals(Money.parse("100.25"), objectMapper.readValue("100.25", Money.class));
+        assertEquals(Money.parse("100"), objectMapper.readValue("\"100\"", Money.class));
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("0.001", Money.class));
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("true", Money.class));
+    }
+}
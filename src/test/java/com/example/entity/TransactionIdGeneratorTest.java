@@ -0,0 +1,66 @@
+package com.example.entity;
+
+import com.example.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"transaction.id.strategy=snowflake", "transaction.id.worker-id=7"})
+public class TransactionIdGeneratorTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void whenSnowflakeStrategy_idsAreAssignedLocallyAndIncrease() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSenderAccountId(1L);
+            transaction.setRecipientAccountId(2L);
+            transaction.setAmount(BigDecimal.TEN);
+            transaction.setTimestamp(OffsetDateTime.now());
+            transactions.add(transaction);
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+
+        for (int i = 1; i < saved.size(); i++) {
+            assertTrue(saved.get(i).getId() > saved.get(i - 1).getId());
+        }
+        assertEquals(7L, (saved.get(0).getId() >> 12) & 1023);
+    }
+
+    @Test
+    void whenGeneratedConcurrently_snowflakeIdsAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            IntStream.range(0, 8).forEach(thread -> executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+
+        assertEquals(400_000, ids.size());
+    }
+
+    @Test
+    void whenWorkerIdOutOfRange_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.repository;
+
+import com.example.dto.TransactionView;
+import com.example.entity.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveSegmentTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void whenWrittenAndOpened_transactionsRoundTripInTimestampOrder() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            OffsetDateTime timestamp = DAY.atTime(21, 0).atOffset(ZoneOffset.ofHours(-2)).minusSeconds(i * 7L).plusNanos(123_456_000);
+            transactions.add(transaction(10_000L - i, i % 50, i % 50 + 1, BigDecimal.valueOf(i * 101L, 2), timestamp));
+        }
+
+        Path file = directory.resolve("2024-05-01-0.seg");
+        ArchiveSegment.write(file, DAY, transactions);
+        ArchiveSegment segment = ArchiveSegment.open(file);
+
+        assertEquals(DAY, segment.getDay());
+        assertEquals(1000, segment.getRows());
+        assertTrue(segment.containsAccount(50L));
+        assertFalse(segment.containsAccount(51L));
+        List<TransactionView> read = new ArrayList<>();
+        ArchiveSegment.Cursor cursor = segment.cursor();
+        while (cursor.next()) {
+            read.add(cursor.view());
+        }
+        assertEquals(1000, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            // the oldest transaction was generated last
+            Transaction expected = transactions.get(transactions.size() - 1 - i);
+            TransactionView actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getSenderAccountId(), actual.getSenderAccountId());
+            assertEquals(expected.getRecipientAccountId(), actual.getRecipientAccountId());
+            assertEquals(0, expected.getAmount().compareTo(actual.getAmount()));
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        }
+        // a fraction of the 8 bytes per value of the uncompressed columns
+        assertTrue(Files.size(file) < 1000 * 8);
+        assertFalse(Files.exists(directory.resolve("2024-05-01-0.seg.tmp")));
+    }
+
+    static Transaction transaction(Long id, long sender, long recipient, BigDecimal amount, OffsetDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setSenderAccountId(sender);
+        transaction.setRecipientAccountId(recipient);
+        transaction.setAmount(amount);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.repository;
+
+import com.example.dto.TransactionView;
+import com.example.entity.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionArchiveTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void whenDayHasInterleavedSegments_rowsAreMergedInTimestampOrder() throws IOException {
+        TransactionArchive archive = new TransactionArchive();
+        ReflectionTestUtils.setField(archive, "enabled", true);
+        ReflectionTestUtils.setField(archive, "directory", directory);
+        archive.init();
+        OffsetDateTime start = DAY.atStartOfDay().atOffset(ZoneOffset.UTC);
+        for (int segment = 0; segment < 3; segment++) {
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = segment; i < 30; i += 3) {
+                // ids run against the timestamps, so id order alone would be wrong
+                transactions.add(ArchiveSegmentTest.transaction(100L - i, 1, 2, BigDecimal.ONE, start.plusMinutes(i)));
+            }
+            archive.append(DAY, transactions);
+        }
+        archive.advance(start.plusDays(1));
+
+        List<Long> ids = archive.streamByTimestamp(start.plusMinutes(5), start.plusMinutes(25))
+                .map(TransactionView::getId).toList();
+        List<Long> sent = archive.streamSentAfter(1L, start.plusMinutes(20), 80L, start.plusDays(1))
+                .map(TransactionView::getId).toList();
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 95; id > 75; id--) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids);
+        assertEquals(List.of(79L, 78L, 77L, 76L, 75L, 74L, 73L, 72L, 71L), sent);
+        assertEquals(3, archive.getSegmentCount());
+    }
+}
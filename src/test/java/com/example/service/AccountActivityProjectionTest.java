@@ -0,0 +1,93 @@
+package com.example.service;
+
+import com.example.dto.AccountActivityResponse;
+import com.example.entity.Money;
+import com.example.entity.Transaction;
+import com.example.repository.AccountActivityRepository;
+import com.example.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class AccountActivityProjectionTest {
+    private static final OffsetDateTime NOW = OffsetDateTime.now(ZoneOffset.UTC);
+    private static final LocalDate TODAY = NOW.toLocalDate();
+    private static final LocalDate LAST_YEAR = TODAY.minusYears(1);
+
+    @Autowired
+    private AccountActivityProjection accountActivityProjection;
+
+    @Autowired
+    private TransactionRecorder transactionRecorder;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountActivityRepository accountActivityRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountActivityProjection.rebuild();
+    }
+
+    @Test
+    void whenTransactionsAreRecorded_totalsAreUpdated() {
+        transactionRecorder.save(transaction(1L, 2L, "100.00", NOW));
+        transactionRecorder.saveAll(List.of(
+                transaction(2L, 1L, "30.00", NOW),
+                transaction(1L, 3L, "5.50", NOW),
+                transaction(1L, 2L, "7.00", NOW.minusYears(1))));
+
+        assertTotals(accountActivityProjection.get(1L, TODAY), 2, "105.50", 1, "30.00");
+        assertTotals(accountActivityProjection.get(2L, TODAY), 1, "30.00", 1, "100.00");
+        assertTotals(accountActivityProjection.get(1L, LAST_YEAR), 1, "7.00", 0, "0");
+        assertTotals(accountActivityProjection.get(4L, TODAY), 0, "0", 0, "0");
+    }
+
+    @Test
+    void whenRebuilt_totalsMatchTheHistory() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (long account = 1; account <= 200; account++) {
+            transactions.add(transaction(account, account + 1, "1.00", NOW));
+            transactions.add(transaction(account, account + 1, "2.00", NOW.minusYears(1)));
+        }
+        transactionRecorder.saveAll(transactions);
+        accountActivityRepository.deleteAllInBatch();
+
+        assertEquals(402, accountActivityProjection.rebuild());
+
+        assertTotals(accountActivityProjection.get(100L, TODAY), 1, "1.00", 1, "1.00");
+        assertTotals(accountActivityProjection.get(201L, TODAY), 0, "0", 1, "1.00");
+        assertTotals(accountActivityProjection.get(100L, LAST_YEAR), 1, "2.00", 1, "2.00");
+    }
+
+    private static void assertTotals(AccountActivityResponse activity, long sentCount, String sentAmount,
+                                     long receivedCount, String receivedAmount) {
+        assertEquals(sentCount, activity.getSentCount());
+        assertEquals(Money.parse(sentAmount), activity.getSentAmount());
+        assertEquals(receivedCount, activity.getReceivedCount());
+        assertEquals(Money.parse(receivedAmount), activity.getReceivedAmount());
+    }
+
+    private static Transaction transaction(Long senderAccountId, Long recipientAccountId, String amount, OffsetDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAccountId(senderAccountId);
+        transaction.setRecipientAccountId(recipientAccountId);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
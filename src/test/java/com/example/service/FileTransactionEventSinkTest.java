@@ -0,0 +1,49 @@
+package com.example.service;
+
+import com.example.dto.TransactionCompletedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileTransactionEventSinkTest {
+    private static final OffsetDateTime TIMESTAMP = OffsetDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void whenPublished_eventsAreAppendedAsJsonLines() throws IOException {
+        Path file = directory.resolve("events/events.ndjson");
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        try (FileTransactionEventSink sink = new FileTransactionEventSink(file, true, objectMapper)) {
+            sink.publish(List.of(event(1L), event(2L)));
+            sink.publish(List.of(event(3L)));
+        }
+        try (FileTransactionEventSink sink = new FileTransactionEventSink(file, false, objectMapper)) {
+            sink.publish(List.of(event(4L)));
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(4, lines.size());
+        assertEquals("{\"id\":3,\"senderAccountId\":1,\"recipientAccountId\":2,\"amount\":10.50,\"timestamp\":\"2024-05-01T12:00:00Z\"}",
+                lines.get(2));
+    }
+
+    private static TransactionCompletedEvent event(Long id) {
+        return new TransactionCompletedEvent(id, 1L, 2L, new BigDecimal("10.50"), TIMESTAMP);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class IdempotentTransfersTest {
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @InjectMocks
+    private IdempotentTransfers idempotentTransfers;
+
+    private AutoCloseable autoCloseable;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = MockitoAnnotations.openMocks(this);
+        idempotentTransfers.init();
+        when(transactionRepository.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void whenKeyIsReplayed_transferRunsOnce() {
+        AtomicInteger transfers = new AtomicInteger();
+
+        Transaction first = idempotentTransfers.execute("key-1", 1L, 2L, new BigDecimal("100"), () -> transaction(transfers.incrementAndGet(), 2L, new BigDecimal("100")));
+        Transaction second = idempotentTransfers.execute("key-1", 1L, 2L, new BigDecimal("100.00"), () -> transaction(transfers.incrementAndGet(), 2L, new BigDecimal("100")));
+
+        assertSame(first, second);
+        assertEquals(1, transfers.get());
+    }
+
+    @Test
+    void whenDuplicateIsInFlight_itWaitsForTheFirstResult() throws Exception {
+        AtomicInteger transfers = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<Transaction> first = executor.submit(() -> idempotentTransfers.execute("key-2", 1L, 2L, BigDecimal.TEN, () -> {
+                started.countDown();
+                await(release);
+                return transaction(transfers.incrementAndGet(), 2L, BigDecimal.TEN);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Transaction> duplicate = executor.submit(() -> idempotentTransfers.execute("key-2", 1L, 2L, BigDecimal.TEN,
+                    () -> transaction(transfers.incrementAndGet(), 2L, BigDecimal.TEN)));
+
+            Thread.sleep(100);
+            assertFalse(duplicate.isDone());
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, transfers.get());
+    }
+
+    @Test
+    void whenTransferFails_keyCanBeRetried() {
+        assertThrows(IllegalStateException.class, () -> idempotentTransfers.execute("key-3", 1L, 2L, BigDecimal.TEN, () -> {
+            throw new IllegalStateException("Insufficient funds");
+        }));
+
+        Transaction transaction = idempotentTransfers.execute("key-3", 1L, 2L, BigDecimal.TEN, () -> transaction(1, 2L, BigDecimal.TEN));
+
+        assertEquals(1L, transaction.getId());
+    }
+
+    @Test
+    void whenKeyIsReusedForAnotherTransfer_rejected() {
+        idempotentTransfers.execute("key-4", 1L, 2L, BigDecimal.TEN, () -> transaction(1, 2L, BigDecimal.TEN));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                idempotentTransfers.execute("key-4", 1L, 3L, BigDecimal.TEN, () -> transaction(2, 3L, BigDecimal.TEN)));
+
+        assertEquals("Idempotency key was already used for a different transfer", exception.getMessage());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoCloseable.close();
+    }
+
+    private static Transaction transaction(long id, Long recipientAccountId, BigDecimal amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setSenderAccountId(1L);
+        transaction.setRecipientAccountId(recipientAccountId);
+        transaction.setAmount(amount);
+        return transaction;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.service;
+
+import com.example.dto.AccountActivityResponse;
+import com.example.dto.ExportFormat;
+import com.example.dto.TransactionPage;
+import com.example.dto.TransactionView;
+import com.example.entity.Transaction;
+import com.example.repository.TransactionArchive;
+import com.example.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "transaction.archive.enabled=true",
+        "transaction.archive.hot-days=1",
+        "transaction.archive.segment-rows=4"
+})
+public class TransactionArchiverTest {
+    private static final OffsetDateTime NOW = OffsetDateTime.now(ZoneOffset.UTC);
+    private static final Path ARCHIVE_DIRECTORY = createDirectory();
+
+    @Autowired
+    private TransactionArchiver transactionArchiver;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionExporter transactionExporter;
+
+    @Autowired
+    private TransactionRecorder transactionRecorder;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountActivityProjection accountActivityProjection;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("transaction.archive.directory", ARCHIVE_DIRECTORY::toString);
+    }
+
+    @Test
+    void whenOldTransactionsAreArchived_readsReturnTheSameResults() throws IOException {
+        transactionRepository.deleteAll();
+        accountActivityProjection.rebuild();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // several rows at the same instant, so pages are ordered by id within a timestamp
+            OffsetDateTime tenDaysAgo = NOW.minusDays(10).plusNanos(i / 2 * 1_000);
+            transactions.add(transaction(1L, 2L, (i + 1) + ".25", tenDaysAgo));
+            transactions.add(transaction(3L, 4L, "9.00", tenDaysAgo));
+        }
+        transactions.add(transaction(2L, 1L, "3.00", NOW.minusDays(3).withOffsetSameInstant(ZoneOffset.ofHours(2))));
+        transactions.add(transaction(1L, 3L, "4.00", NOW.minusDays(1)));
+        transactions.add(transaction(2L, 1L, "5.00", NOW));
+        transactionRecorder.saveAll(transactions);
+
+        List<String> page = allPages(1L, null);
+        List<String> window = allPages(1L, NOW.minusDays(3).minusSeconds(1));
+        String export = export();
+        LocalDate tenDaysAgo = NOW.minusDays(10).toLocalDate();
+        String oldActivity = activity(1L, tenDaysAgo);
+        String recentActivity = activity(1L, NOW.toLocalDate());
+        assertEquals(9, page.size());
+        assertEquals(3, window.size());
+
+        TransactionArchiver.Run first = transactionArchiver.archive();
+        assertEquals(13, first.archived());
+        assertEquals(0, first.deleted());
+        assertEquals(NOW.toLocalDate().minusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC), transactionArchive.getArchivedBefore());
+        try (Stream<Path> files = Files.list(ARCHIVE_DIRECTORY)) {
+            // 12 rows of one day in segments of 4, and one row of another day
+            assertEquals(4, files.filter(file -> file.toString().endsWith(".seg")).count());
+        }
+        // still in the table until the next run, but read from the archive
+        assertEquals(15, transactionRepository.count());
+        assertEquals(page, allPages(1L, null));
+        assertEquals(window, allPages(1L, NOW.minusDays(3).minusSeconds(1)));
+        assertEquals(export, export());
+
+        TransactionArchiver.Run second = transactionArchiver.archive();
+        assertEquals(0, second.archived());
+        assertEquals(13, second.deleted());
+        assertEquals(2, transactionRepository.count());
+        assertEquals(13, transactionArchive.getRowCount());
+        assertEquals(page, allPages(1L, null));
+        assertEquals(window, allPages(1L, NOW.minusDays(3).minusSeconds(1)));
+        assertEquals(export, export());
+
+        accountActivityProjection.rebuild();
+        assertEquals(oldActivity, activity(1L, tenDaysAgo));
+        assertEquals(recentActivity, activity(1L, NOW.toLocalDate()));
+    }
+
+    private List<String> allPages(Long accountId, OffsetDateTime from) {
+        List<String> transactions = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPage page = transactionService.findTransactions(accountId, from, null, cursor, 2);
+            page.getTransactions().stream().map(TransactionArchiverTest::format).forEach(transactions::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return transactions;
+    }
+
+    private String export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionExporter.export(NOW.minusYears(1), NOW.plusDays(1), ExportFormat.CSV, out);
+        return out.toString();
+    }
+
+    private String activity(Long accountId, LocalDate date) {
+        AccountActivityResponse activity = accountActivityProjection.get(accountId, date);
+        return activity.getSentCount() + "/" + activity.getSentAmount() + "/" + activity.getReceivedCount() + "/" + activity.getReceivedAmount();
+    }
+
+    private static String format(TransactionView transaction) {
+        return transaction.getId() + "," + transaction.getSenderAccountId() + "," + transaction.getRecipientAccountId() + ","
+                + transaction.getAmount().toPlainString() + "," + transaction.getTimestamp();
+    }
+
+    private static Transaction transaction(Long senderAccountId, Long recipientAccountId, String amount, OffsetDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAccountId(senderAccountId);
+        transaction.setRecipientAccountId(recipientAccountId);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("transaction-archive");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.service;
+
+import com.example.client.AccountBusyException;
+import com.example.dto.TransactionCompletedEvent;
+import com.example.support.StubAccountServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays the published events of every account and checks that they reproduce, one by one, the
+ * balances account-service went through, with lock-free delta updates and write-behind inserts
+ * through a queue small enough to fill up.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:eventorderdb;LAZY_QUERY_EXECUTION=TRUE",
+        "account.service.balance-updates=delta",
+        "transaction.outbox.enabled=true",
+        "transaction.outbox.poll-interval=20ms",
+        "transaction.write-behind.enabled=true",
+        "transaction.write-behind.queue-capacity=4",
+        "transaction.write-behind.offer-timeout=5s"
+})
+public class TransactionEventOrderTest {
+    private static final int ACCOUNTS = 4;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000");
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private EventCollector eventCollector;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+        registry.add("transaction.write-behind.journal.directory", () -> createDirectory("journal"));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenTransfersRunConcurrently_eventsOfEachAccountArriveInTheOrderTheyWereApplied() throws InterruptedException {
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            accountServer.addAccount(id, INITIAL_BALANCE);
+        }
+        AtomicInteger completed = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 300; i++) {
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long other = random.nextLong(2, ACCOUNTS + 1);
+                    boolean fromHotAccount = random.nextBoolean();
+                    try {
+                        transactionService.transfer(fromHotAccount ? 1L : other, fromHotAccount ? other : 1L,
+                                BigDecimal.valueOf(random.nextInt(1, 50)));
+                        completed.incrementAndGet();
+                    } catch (IllegalStateException | AccountBusyException e) {
+                        // no balance change and no event
+                    }
+                });
+            }
+        }
+
+        List<TransactionCompletedEvent> events = eventCollector.await(completed.get());
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            List<BigDecimal> replayed = new ArrayList<>(List.of(INITIAL_BALANCE));
+            BigDecimal balance = INITIAL_BALANCE;
+            for (TransactionCompletedEvent event : events) {
+                if (event.getSenderAccountId() == id) {
+                    balance = balance.subtract(event.getAmount());
+                    replayed.add(balance);
+                } else if (event.getRecipientAccountId() == id) {
+                    balance = balance.add(event.getAmount());
+                    replayed.add(balance);
+                }
+            }
+            List<BigDecimal> applied = accountServer.getBalanceHistory(id);
+            assertEquals(applied.size(), replayed.size());
+            for (int i = 0; i < applied.size(); i++) {
+                assertEquals(0, applied.get(i).compareTo(replayed.get(i)), "balance " + i + " of account " + id);
+            }
+        }
+    }
+
+    private static String createDirectory(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class EventCollectorConfig {
+        @Bean
+        EventCollector eventCollector() {
+            return new EventCollector();
+        }
+    }
+
+    static class EventCollector {
+        private final List<TransactionCompletedEvent> events = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void on(TransactionCompletedEvent event) {
+            events.add(event);
+        }
+
+        List<TransactionCompletedEvent> await(int count) throws InterruptedException {
+            for (int i = 0; i < 500 && events.size() < count; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(count, events.size());
+            return List.copyOf(events);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenSegmentIsRotatedAndCommitted_itIsDeleted() {
+        TransactionJournal journal = new TransactionJournal(directory, 1, false);
+        journal.recover();
+
+        TransactionJournal.Segment first = journal.append(transaction(1L, "key,with,commas"));
+        TransactionJournal.Segment second = journal.append(transaction(2L, null));
+        assertNotSame(first, second);
+        assertEquals(2, journal.getSegmentCount());
+
+        journal.committed(first, 1);
+
+        assertEquals(1, journal.getSegmentCount());
+        List<Transaction> remaining = new TransactionJournal(directory, 1, false).recover();
+        assertEquals(1, remaining.size());
+        assertEquals(2L, remaining.get(0).getId());
+        assertNull(remaining.get(0).getIdempotencyKey());
+    }
+
+    @Test
+    void whenNotCommitted_transactionsAreRecovered() {
+        TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024, false);
+        journal.recover();
+        journal.append(transaction(1L, "key,with,commas"));
+        journal.append(transaction(2L, null));
+        journal.close();
+
+        TransactionJournal restarted = new TransactionJournal(directory, 1024 * 1024, false);
+        List<Transaction> recovered = restarted.recover();
+
+        assertEquals(List.of(1L, 2L), recovered.stream().map(Transaction::getId).toList());
+        assertEquals("key,with,commas", recovered.get(0).getIdempotencyKey());
+        assertEquals(0, new BigDecimal("10.25").compareTo(recovered.get(0).getAmount()));
+
+        restarted.deleteRecovered();
+        assertEquals(0, restarted.getSegmentCount());
+        assertTrue(new TransactionJournal(directory, 1024 * 1024, false).recover().isEmpty());
+    }
+
+    private static Transaction transaction(Long id, String idempotencyKey) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setSenderAccountId(1L);
+        transaction.setRecipientAccountId(2L);
+        transaction.setAmount(new BigDecimal("10.25"));
+        transaction.setTimestamp(OffsetDateTime.now());
+        transaction.setIdempotencyKey(idempotencyKey);
+        return transaction;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.service;
+
+import com.example.dto.TransactionCompletedEvent;
+import com.example.entity.Transaction;
+import com.example.entity.TransactionEventCheckpoint;
+import com.example.repository.TransactionEventCheckpointRepository;
+import com.example.repository.TransactionEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "transaction.outbox.enabled=true",
+        "transaction.outbox.batch-size=10",
+        "transaction.outbox.poll-interval=20ms",
+        "transaction.outbox.retry-backoff=10ms"
+})
+public class TransactionOutboxTest {
+    @Autowired
+    private TransactionRecorder transactionRecorder;
+
+    @Autowired
+    private TransactionEventRepository transactionEventRepository;
+
+    @Autowired
+    private TransactionEventCheckpointRepository transactionEventCheckpointRepository;
+
+    @Autowired
+    private EventCollector eventCollector;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        eventCollector.events.clear();
+        eventCollector.failures.set(0);
+    }
+
+    @Test
+    void whenTransactionsAreSaved_eventsArePublishedInOrderPerAccountAndCheckpointed() throws InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(transactionRecorder.save(transaction(1L, 2L, "1.00")).getId());
+        }
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            batch.add(transaction(1L + i % 3, 10L, "2.00"));
+        }
+        transactionRecorder.saveAll(batch).forEach(transaction -> ids.add(transaction.getId()));
+
+        List<TransactionCompletedEvent> events = eventCollector.await(ids.size());
+
+        assertEquals(ids, events.stream().map(TransactionCompletedEvent::getId).toList());
+        Map<Long, List<Long>> bySender = events.stream().collect(Collectors.groupingBy(TransactionCompletedEvent::getSenderAccountId,
+                Collectors.mapping(TransactionCompletedEvent::getId, Collectors.toList())));
+        bySender.values().forEach(accountIds -> assertEquals(accountIds.stream().sorted().toList(), accountIds));
+        assertEquals(0, new BigDecimal("2.00").compareTo(events.get(ids.size() - 1).getAmount()));
+
+        awaitEmptyOutbox();
+        TransactionEventCheckpoint checkpoint = transactionEventCheckpointRepository.findById("bus").orElseThrow();
+        assertEquals(ids.get(ids.size() - 1), checkpoint.getLastEventId());
+        assertTrue(checkpoint.getPublishedCount() >= ids.size());
+    }
+
+    @Test
+    void whenListenerFails_batchIsPublishedAgain() throws InterruptedException {
+        double failures = meterRegistry.get("transaction.outbox.failures").functionCounter().count();
+        eventCollector.failures.set(1);
+
+        Long id = transactionRecorder.save(transaction(5L, 6L, "3.00")).getId();
+
+        List<TransactionCompletedEvent> events = eventCollector.await(2);
+        // delivered before the listener failed and again with the retried batch
+        assertEquals(List.of(id, id), events.stream().map(TransactionCompletedEvent::getId).toList());
+        assertEquals(failures + 1, meterRegistry.get("transaction.outbox.failures").functionCounter().count());
+        awaitEmptyOutbox();
+    }
+
+    private void awaitEmptyOutbox() throws InterruptedException {
+        for (int i = 0; i < 100 && transactionEventRepository.count() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, transactionEventRepository.count());
+    }
+
+    private static Transaction transaction(Long senderAccountId, Long recipientAccountId, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAccountId(senderAccountId);
+        transaction.setRecipientAccountId(recipientAccountId);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTimestamp(OffsetDateTime.now(ZoneOffset.UTC));
+        return transaction;
+    }
+
+    @TestConfiguration
+    static class EventCollectorConfig {
+        @Bean
+        EventCollector eventCollector() {
+            return new EventCollector();
+        }
+    }
+
+    static class EventCollector {
+        private final List<TransactionCompletedEvent> events = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @EventListener
+        void on(TransactionCompletedEvent event) {
+            events.add(event);
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw new IllegalStateException("Consumer unavailable");
+            }
+        }
+
+        List<TransactionCompletedEvent> await(int count) throws InterruptedException {
+            for (int i = 0; i < 250 && events.size() < count; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(count, events.size());
+            return List.copyOf(events);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.service;
+
+import com.example.client.AccountBusyException;
+import com.example.client.AccountClient;
+import com.example.dto.TransactionRequest;
+import com.example.dto.TransferResult;
+import com.example.dto.TransferStatus;
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import com.example.support.StubAccountServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "account.service.balance-updates=delta")
+public class TransactionServiceDeltaConcurrencyTest {
+    private static final int ACCOUNTS = 4;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000");
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountClient accountClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @DynamicPropertySource
+    static void accountServiceProperties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            accountServer.addAccount(id, INITIAL_BALANCE);
+            accountServer.setFailingWrites(id, false);
+        }
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenTransfersHitOneAccountConcurrently_moneyIsConserved() {
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 500; i++) {
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long other = random.nextLong(2, ACCOUNTS + 1);
+                    boolean fromHotAccount = random.nextBoolean();
+                    try {
+                        transactionService.transfer(fromHotAccount ? 1L : other, fromHotAccount ? other : 1L,
+                                BigDecimal.valueOf(random.nextInt(1, 50)));
+                    } catch (IllegalStateException | AccountBusyException e) {
+                        // insufficient funds and exhausted conflict retries leave no balance change behind
+                    }
+                });
+            }
+        }
+
+        List<Transaction> transactions = transactionRepository.findAll();
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            expected.put(id, INITIAL_BALANCE);
+        }
+        for (Transaction transaction : transactions) {
+            expected.merge(transaction.getSenderAccountId(), transaction.getAmount().negate(), BigDecimal::add);
+            expected.merge(transaction.getRecipientAccountId(), transaction.getAmount(), BigDecimal::add);
+        }
+
+        assertTrue(transactions.size() > 250);
+        assertThat(accountServer.getTotalBalance(), comparesEqualTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS))));
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            assertThat(accountServer.getBalance(id), comparesEqualTo(expected.get(id)));
+        }
+    }
+
+    @Test
+    void whenAdjustmentIsRetriedWithSameKey_appliedOnce() {
+        accountClient.adjustBalance(1L, new BigDecimal("25"), null, "retry-key");
+        accountClient.adjustBalance(1L, new BigDecimal("25"), null, "retry-key");
+
+        assertThat(accountServer.getBalance(1L), comparesEqualTo(new BigDecimal("10025")));
+    }
+
+    @Test
+    void whenVersionIsStale_adjustmentIsRejected() {
+        Long version = accountClient.getAccount(1L).getVersion();
+        accountClient.adjustBalance(1L, new BigDecimal("-10"), version, "first");
+
+        assertNull(accountClient.adjustBalance(1L, new BigDecimal("-10"), version, "second"));
+        assertThat(accountServer.getBalance(1L), comparesEqualTo(new BigDecimal("9990")));
+    }
+
+    @Test
+    void whenBatchDebitFails_creditsNotAppliedAndDebitsRefunded() {
+        accountServer.setFailingWrites(3L, true);
+
+        List<TransferResult> results = transactionService.transferBatch(List.of(
+                transfer(1L, 2L, new BigDecimal("100")),
+                transfer(3L, 4L, new BigDecimal("100"))));
+
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == TransferStatus.FAILED));
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            assertThat(accountServer.getBalance(id), comparesEqualTo(INITIAL_BALANCE));
+        }
+    }
+
+    @Test
+    void whenBatchCreditFails_appliedAdjustmentsReversed() {
+        accountServer.setFailingWrites(2L, true);
+
+        List<TransferResult> results = transactionService.transferBatch(List.of(
+                transfer(1L, 2L, new BigDecimal("100")),
+                transfer(3L, 4L, new BigDecimal("100"))));
+
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == TransferStatus.FAILED));
+        assertEquals(0, transactionRepository.count());
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            assertThat(accountServer.getBalance(id), comparesEqualTo(INITIAL_BALANCE));
+        }
+    }
+
+    private static TransactionRequest transfer(Long sender, Long recipient, BigDecimal amount) {
+        TransactionRequest transfer = new TransactionRequest();
+        transfer.setSenderAccountId(sender);
+        transfer.setRecipientAccountId(recipient);
+        transfer.setAmount(amount);
+        return transfer;
+    }
+}
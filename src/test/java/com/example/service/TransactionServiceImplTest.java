@@ -1,19 +1,40 @@
 package com.example.service;
 
+import com.example.client.AccountCache;
+import com.example.client.AccountClient;
+import com.example.client.AccountServiceGuard;
+import com.example.client.BalanceUpdateMode;
+import com.example.client.MissingAccounts;
 import com.example.dto.AccountResponse;
+import com.example.dto.TransactionRequest;
+import com.example.dto.TransferResult;
+import com.example.dto.TransferStatus;
 import com.example.entity.Transaction;
 import com.example.repository.TransactionRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.comparesEqualTo;
@@ -28,6 +49,9 @@ public class TransactionServiceImplTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @InjectMocks
+    private AccountClient accountClient;
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
@@ -39,6 +63,27 @@ public class TransactionServiceImplTest {
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(accountClient, "accountCache", new AccountCache());
+        MissingAccounts missingAccounts = new MissingAccounts();
+        ReflectionTestUtils.setField(accountClient, "missingAccounts", missingAccounts);
+        AccountServiceGuard accountServiceGuard = new AccountServiceGuard();
+        ReflectionTestUtils.setField(accountClient, "accountServiceGuard", accountServiceGuard);
+        ReflectionTestUtils.setField(transactionService, "accountServiceGuard", accountServiceGuard);
+        ReflectionTestUtils.setField(transactionService, "accountClient", accountClient);
+        ReflectionTestUtils.setField(transactionService, "accountLocks", new AccountLocks());
+        ReflectionTestUtils.setField(transactionService, "transactionWriteBehind", new TransactionWriteBehind());
+        TransactionRecorder transactionRecorder = new TransactionRecorder();
+        ReflectionTestUtils.setField(transactionRecorder, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(transactionRecorder, "accountActivityProjection", mock(AccountActivityProjection.class));
+        ReflectionTestUtils.setField(transactionRecorder, "transactionOutbox", new TransactionOutbox());
+        ReflectionTestUtils.setField(transactionRecorder, "transactionManager", mock(PlatformTransactionManager.class));
+        transactionRecorder.init();
+        ReflectionTestUtils.setField(transactionService, "transactionRecorder", transactionRecorder);
+        ReflectionTestUtils.setField(transactionService, "transactionOutbox", new TransactionOutbox());
+        ReflectionTestUtils.setField(transactionService, "transactionMetrics", new TransactionMetrics());
+        TransferValidator transferValidator = new TransferValidator();
+        ReflectionTestUtils.setField(transferValidator, "missingAccounts", missingAccounts);
+        ReflectionTestUtils.setField(transactionService, "transferValidator", transferValidator);
     }
 
     @Test
@@ -99,6 +144,27 @@ public class TransactionServiceImplTest {
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
+    @Test
+    void whenTransfer_FractionOfCentRoundedBeforeTransfer() {
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(new BigDecimal("1000"));
+
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(new BigDecimal("600"));
+
+        when(restTemplate.getForObject(accountServiceUrl + sender.getId(), AccountResponse.class)).thenReturn(sender);
+        when(restTemplate.getForObject(accountServiceUrl + recipient.getId(), AccountResponse.class)).thenReturn(recipient);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction createdTransaction = transactionService.transfer(sender.getId(), recipient.getId(), new BigDecimal("10.005"));
+
+        assertThat(createdTransaction.getAmount(), comparesEqualTo(new BigDecimal("10.01")));
+        assertThat(sender.getBalance(), comparesEqualTo(new BigDecimal("989.99")));
+        assertThat(recipient.getBalance(), comparesEqualTo(new BigDecimal("610.01")));
+    }
+
     @Test
     void whenTransfer_SenderAccountNotFound() {
         when(restTemplate.getForObject(accountServiceUrl + "1", AccountResponse.class)).thenReturn(null);
@@ -130,8 +196,293 @@ public class TransactionServiceImplTest {
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
+    @Test
+    void whenTransfer_SenderAccountNotFoundByStatus() {
+        when(restTemplate.getForObject(accountServiceUrl + "1", AccountResponse.class))
+                .thenThrow(HttpClientErrorException.NotFound.class);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                transactionService.transfer(1L, 2L, new BigDecimal("100")));
+
+        assertEquals("Sender account not found", exception.getMessage());
+
+        verify(restTemplate, never()).getForObject(accountServiceUrl + "2", AccountResponse.class);
+        verify(restTemplate, never()).put(anyString(), any(BigDecimal.class));
+    }
+
+    @Test
+    void whenTransfer_SenderAccountKnownMissing_rejectedWithoutRequest() {
+        MissingAccounts missingAccounts = (MissingAccounts) ReflectionTestUtils.getField(accountClient, "missingAccounts");
+        ReflectionTestUtils.setField(missingAccounts, "enabled", true);
+        ReflectionTestUtils.setField(missingAccounts, "maximumSize", 100L);
+        ReflectionTestUtils.setField(missingAccounts, "ttl", Duration.ofMinutes(1));
+        missingAccounts.init();
+        when(restTemplate.getForObject(accountServiceUrl + "1", AccountResponse.class))
+                .thenThrow(HttpClientErrorException.NotFound.class);
+
+        assertThrows(IllegalArgumentException.class, () -> transactionService.transfer(1L, 2L, new BigDecimal("100")));
+        TransferRejectedException exception = assertThrows(TransferRejectedException.class, () ->
+                transactionService.transfer(1L, 2L, new BigDecimal("100")));
+
+        assertEquals("Sender account not found", exception.getMessage());
+        verify(restTemplate, times(1)).getForObject(accountServiceUrl + "1", AccountResponse.class);
+    }
+
+    @Test
+    void whenTransfer_SelfTransferRejected() {
+        TransferRejectedException exception = assertThrows(TransferRejectedException.class, () ->
+                transactionService.transfer(1L, 1L, new BigDecimal("100")));
+
+        assertEquals(TransferValidator.Rejection.SELF_TRANSFER, exception.getRejection());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void whenHotAccountLockHeld_transferBetweenOtherAccountsAdmitted() throws Exception {
+        AccountServiceGuard accountServiceGuard = (AccountServiceGuard) ReflectionTestUtils.getField(transactionService, "accountServiceGuard");
+        ReflectionTestUtils.setField(accountServiceGuard, "enabled", true);
+        ReflectionTestUtils.setField(accountServiceGuard, "initialLimit", 1);
+        ReflectionTestUtils.setField(accountServiceGuard, "minLimit", 1);
+        accountServiceGuard.init();
+        AccountLocks accountLocks = (AccountLocks) ReflectionTestUtils.getField(transactionService, "accountLocks");
+        LongAdder contended = (LongAdder) ReflectionTestUtils.getField(accountLocks, "contended");
+        stubAccounts();
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try (AccountLocks.Held hot = accountLocks.lock(List.of(3L))) {
+            executor.submit(() -> transactionService.transfer(3L, 4L, BigDecimal.ONE));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (contended.sum() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, contended.sum());
+
+            // the transfer waiting for account 3 holds no slot of the limit of one
+            assertNotNull(transactionService.transfer(1L, 2L, new BigDecimal("100")));
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    void whenIdempotentReplay_rateLimitNotCharged() {
+        enableRateLimit(1);
+        IdempotentTransfers idempotentTransfers = new IdempotentTransfers();
+        ReflectionTestUtils.setField(idempotentTransfers, "transactionRepository", transactionRepository);
+        idempotentTransfers.init();
+        ReflectionTestUtils.setField(transactionService, "idempotentTransfers", idempotentTransfers);
+        stubAccounts();
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction transaction = transactionService.transfer(1L, 2L, new BigDecimal("100"), "key-1");
+        Transaction replayed = transactionService.transfer(1L, 2L, new BigDecimal("100"), "key-1");
+        TransferRejectedException exception = assertThrows(TransferRejectedException.class, () ->
+                transactionService.transfer(1L, 2L, new BigDecimal("100"), "key-2"));
+
+        assertSame(transaction, replayed);
+        assertEquals(TransferValidator.Rejection.RATE_LIMITED, exception.getRejection());
+        verify(transactionRepository, times(1)).save(any(Transaction.class));
+    }
+
+    @Test
+    void whenBatchRateLimited_oneTokenTakenPerSender() {
+        enableRateLimit(1);
+        stubAccounts();
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ReflectionTestUtils.setField(accountClient, "accountExecutor", executor);
+
+        try {
+            List<TransferResult> first = transactionService.transferBatch(List.of(
+                    transfer(1L, 2L, BigDecimal.ONE), transfer(1L, 2L, BigDecimal.ONE), transfer(1L, 2L, BigDecimal.ONE)));
+            List<TransferResult> second = transactionService.transferBatch(List.of(transfer(1L, 2L, BigDecimal.ONE)));
+
+            assertTrue(first.stream().allMatch(result -> result.getStatus() == TransferStatus.SUCCEEDED));
+            assertEquals(TransferStatus.FAILED, second.get(0).getStatus());
+            assertEquals(TransferValidator.Rejection.RATE_LIMITED.getMessage(), second.get(0).getMessage());
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    void whenDeltaCreditAndRefundFail_refundFailureSuppressed() {
+        ReflectionTestUtils.setField(transactionService, "balanceUpdateMode", BalanceUpdateMode.DELTA);
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(new BigDecimal("1000"));
+        sender.setVersion(3L);
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(new BigDecimal("500"));
+        HttpServerErrorException creditFailure = new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "credit");
+        HttpServerErrorException refundFailure = new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "refund");
+
+        when(restTemplate.getForObject(accountServiceUrl + "1", AccountResponse.class)).thenReturn(sender);
+        when(restTemplate.getForObject(accountServiceUrl + "2", AccountResponse.class)).thenReturn(recipient);
+        when(restTemplate.postForObject(eq(accountServiceUrl + "1/balance/adjustments"), any(), eq(AccountResponse.class)))
+                .thenReturn(sender)
+                .thenThrow(refundFailure);
+        when(restTemplate.postForObject(eq(accountServiceUrl + "2/balance/adjustments"), any(), eq(AccountResponse.class)))
+                .thenThrow(creditFailure);
+
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class, () ->
+                transactionService.transfer(1L, 2L, new BigDecimal("100")));
+
+        assertSame(creditFailure, exception);
+        assertArrayEquals(new Throwable[]{refundFailure}, exception.getSuppressed());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void whenTransferConcurrently_lookupsOverlapAndWritesAreOrdered() throws Exception {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ReflectionTestUtils.setField(accountClient, "accountExecutor", executor);
+        ReflectionTestUtils.setField(accountClient, "concurrent", true);
+
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(new BigDecimal("1000"));
+
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(new BigDecimal("600"));
+
+        CountDownLatch lookups = new CountDownLatch(2);
+        when(restTemplate.getForObject(accountServiceUrl + sender.getId(), AccountResponse.class)).thenAnswer(invocation -> {
+            lookups.countDown();
+            assertTrue(lookups.await(5, TimeUnit.SECONDS));
+            return sender;
+        });
+        when(restTemplate.getForObject(accountServiceUrl + recipient.getId(), AccountResponse.class)).thenAnswer(invocation -> {
+            lookups.countDown();
+            assertTrue(lookups.await(5, TimeUnit.SECONDS));
+            return recipient;
+        });
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try {
+            Transaction createdTransaction = transactionService.transfer(sender.getId(), recipient.getId(), new BigDecimal("100"));
+
+            assertNotNull(createdTransaction);
+            InOrder writes = inOrder(restTemplate);
+            writes.verify(restTemplate).put(accountServiceUrl + sender.getId() + "/balance", new BigDecimal("900"));
+            writes.verify(restTemplate).put(accountServiceUrl + recipient.getId() + "/balance", new BigDecimal("700"));
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    void whenTransferConcurrently_SenderWriteFails_recipientNotCredited() {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ReflectionTestUtils.setField(accountClient, "accountExecutor", executor);
+        ReflectionTestUtils.setField(accountClient, "concurrent", true);
+
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(new BigDecimal("1000"));
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(new BigDecimal("600"));
+
+        when(restTemplate.getForObject(accountServiceUrl + "1", AccountResponse.class)).thenReturn(sender);
+        when(restTemplate.getForObject(accountServiceUrl + "2", AccountResponse.class)).thenReturn(recipient);
+        doThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR))
+                .when(restTemplate).put(accountServiceUrl + "1/balance", new BigDecimal("900"));
+
+        try {
+            assertThrows(HttpServerErrorException.class, () -> transactionService.transfer(1L, 2L, new BigDecimal("100")));
+
+            verify(restTemplate, never()).put(eq(accountServiceUrl + "2/balance"), any(BigDecimal.class));
+            verify(transactionRepository, never()).save(any(Transaction.class));
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    void whenTransferConcurrently_SenderAccountNotFound() {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ReflectionTestUtils.setField(accountClient, "accountExecutor", executor);
+        ReflectionTestUtils.setField(accountClient, "concurrent", true);
+
+        when(restTemplate.getForObject(accountServiceUrl + "1", AccountResponse.class))
+                .thenThrow(HttpClientErrorException.NotFound.class);
+        when(restTemplate.getForObject(accountServiceUrl + "2", AccountResponse.class)).thenReturn(null);
+
+        try {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                    transactionService.transfer(1L, 2L, new BigDecimal("100")));
+
+            assertEquals("Sender account not found", exception.getMessage());
+            verify(restTemplate, never()).put(anyString(), any(BigDecimal.class));
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    void whenTransferWithCachedBalanceReads_lookupsServedFromCache() {
+        AccountCache accountCache = new AccountCache();
+        ReflectionTestUtils.setField(accountCache, "enabled", true);
+        ReflectionTestUtils.setField(accountCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(accountCache, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(accountCache, "cachedBalanceReads", true);
+        accountCache.init();
+        ReflectionTestUtils.setField(accountClient, "accountCache", accountCache);
+
+        AccountResponse sender = new AccountResponse();
+        sender.setId(1L);
+        sender.setBalance(new BigDecimal("1000"));
+
+        AccountResponse recipient = new AccountResponse();
+        recipient.setId(2L);
+        recipient.setBalance(new BigDecimal("600"));
+
+        when(restTemplate.getForObject(accountServiceUrl + sender.getId(), AccountResponse.class)).thenReturn(sender);
+        when(restTemplate.getForObject(accountServiceUrl + recipient.getId(), AccountResponse.class)).thenReturn(recipient);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        transactionService.transfer(sender.getId(), recipient.getId(), new BigDecimal("100"));
+        transactionService.transfer(sender.getId(), recipient.getId(), new BigDecimal("100"));
+
+        verify(restTemplate, times(1)).getForObject(accountServiceUrl + sender.getId(), AccountResponse.class);
+        verify(restTemplate, times(1)).getForObject(accountServiceUrl + recipient.getId(), AccountResponse.class);
+        verify(restTemplate).put(accountServiceUrl + sender.getId() + "/balance", new BigDecimal("800"));
+        verify(restTemplate).put(accountServiceUrl + recipient.getId() + "/balance", new BigDecimal("800"));
+        assertThat(accountCache.get(sender.getId()).getBalance(), comparesEqualTo(new BigDecimal("800")));
+    }
+
     @AfterEach
     void tearDown() throws Exception {
         autoCloseable.close();
     }
+
+    private void enableRateLimit(int burst) {
+        TransferValidator transferValidator = (TransferValidator) ReflectionTestUtils.getField(transactionService, "transferValidator");
+        ReflectionTestUtils.setField(transferValidator, "rateLimitEnabled", true);
+        ReflectionTestUtils.setField(transferValidator, "perSender", 0.001);
+        ReflectionTestUtils.setField(transferValidator, "burst", burst);
+        ReflectionTestUtils.setField(transferValidator, "maximumSenders", 100L);
+        transferValidator.init();
+    }
+
+    private void stubAccounts() {
+        for (long id = 1; id <= 2; id++) {
+            AccountResponse account = new AccountResponse();
+            account.setId(id);
+            account.setBalance(new BigDecimal("1000"));
+            when(restTemplate.getForObject(accountServiceUrl + id, AccountResponse.class)).thenReturn(account);
+        }
+    }
+
+    private static TransactionRequest transfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setSenderAccountId(senderAccountId);
+        request.setRecipientAccountId(recipientAccountId);
+        request.setAmount(amount);
+        return request;
+    }
 }
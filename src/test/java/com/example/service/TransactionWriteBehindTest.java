@@ -0,0 +1,182 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.repository.TransactionRepository;
+import com.example.support.StubAccountServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(properties = {
+        "transaction.write-behind.enabled=true",
+        "transaction.write-behind.batch-size=10",
+        "transaction.write-behind.flush-interval=50ms",
+        "transaction.write-behind.max-attempts=2",
+        "transaction.write-behind.retry-backoff=10ms"
+})
+public class TransactionWriteBehindTest {
+    private static final long RECOVERED_ID = 1_000_000L;
+    private static final StubAccountServer accountServer = StubAccountServer.start();
+    private static final Path journalDirectory = createJournal();
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionWriteBehind transactionWriteBehind;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @SpyBean
+    private AccountActivityProjection accountActivityProjection;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("account.service.url", accountServer::getUrl);
+        registry.add("transaction.write-behind.journal.directory", journalDirectory::toString);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        accountServer.close();
+    }
+
+    @Test
+    void whenStarted_journaledTransactionsAreRecovered() throws IOException {
+        Transaction recovered = transactionRepository.findById(RECOVERED_ID).orElseThrow();
+
+        assertEquals(7L, recovered.getSenderAccountId());
+        assertEquals(8L, recovered.getRecipientAccountId());
+        assertThat(recovered.getAmount(), comparesEqualTo(new BigDecimal("12.50")));
+        assertEquals("recovered-key", recovered.getIdempotencyKey());
+        assertFalse(transactionRepository.existsById(RECOVERED_ID + 1));
+        assertFalse(transactionRepository.existsById(RECOVERED_ID + 2));
+        assertFalse(Files.exists(journalDirectory.resolve("journal-0000000000000000000.log")));
+        assertTrue(journaled().contains(RECOVERED_ID + 2 + ",7,8,3.00"));
+    }
+
+    @Test
+    void whenBatchKeepsFailing_otherRowsAreInsertedAndFailedRowStaysJournaled() throws Exception {
+        double failedBefore = meterRegistry.get("transaction.write.failed").functionCounter().count();
+        List<Transaction> batch = transactionWriteBehind.submitAll(List.of(
+                transaction(null), transaction("recovered-key"), transaction(null)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!transactionRepository.existsById(batch.get(2).getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(failedBefore + 1, meterRegistry.get("transaction.write.failed").functionCounter().count());
+        assertTrue(transactionRepository.existsById(batch.get(0).getId()));
+        assertFalse(transactionRepository.existsById(batch.get(1).getId()));
+        assertTrue(transactionRepository.existsById(batch.get(2).getId()));
+        assertTrue(journaled().contains(batch.get(1).getId() + ",3,4,"));
+    }
+
+    @Test
+    void whenRowKeepsFailingTransiently_writerRetriesItUntilInserted() throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            boolean flaky = transactions.stream().anyMatch(transaction -> "flaky-key".equals(transaction.getIdempotencyKey()));
+            // enough conflicts to fail both batch attempts and the row's own insert, each tried three times
+            if (flaky && failures.incrementAndGet() <= 9) {
+                throw new DataIntegrityViolationException("conflicting insert of the activity totals");
+            }
+            return invocation.callRealMethod();
+        }).when(accountActivityProjection).record(anyList());
+        double failedBefore = meterRegistry.get("transaction.write.failed").functionCounter().count();
+
+        List<Transaction> batch = transactionWriteBehind.submitAll(List.of(transaction(null), transaction("flaky-key")));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!transactionRepository.existsById(batch.get(1).getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(transactionRepository.existsById(batch.get(0).getId()));
+        assertTrue(transactionRepository.existsById(batch.get(1).getId()));
+        assertEquals(10, failures.get());
+        assertEquals(failedBefore, meterRegistry.get("transaction.write.failed").functionCounter().count());
+    }
+
+    @Test
+    void whenTransferring_transactionsAreInsertedBehindTheResponse() throws Exception {
+        accountServer.addAccount(1L, new BigDecimal("1000"));
+        accountServer.addAccount(2L, new BigDecimal("1000"));
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ids.add(transactionService.transfer(1L, 2L, BigDecimal.ONE).getId());
+        }
+        assertEquals(25, ids.stream().distinct().count());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transactionRepository.findAllById(ids).size() < ids.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(ids.size(), transactionRepository.findAllById(ids).size());
+    }
+
+    private static Transaction transaction(String idempotencyKey) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAccountId(3L);
+        transaction.setRecipientAccountId(4L);
+        transaction.setAmount(BigDecimal.ONE);
+        transaction.setTimestamp(OffsetDateTime.now());
+        transaction.setIdempotencyKey(idempotencyKey);
+        return transaction;
+    }
+
+    private static String journaled() throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (Stream<Path> paths = Files.list(journalDirectory)) {
+            for (Path path : paths.sorted().toList()) {
+                content.append(Files.readString(path));
+            }
+        }
+        return content.toString();
+    }
+
+    /**
+     * A journal as left behind by a crash: a complete entry, one that reuses its idempotency key and
+     * so cannot be inserted, and one that was cut off mid-write.
+     */
+    private static Path createJournal() {
+        try {
+            Path directory = Files.createTempDirectory("journal");
+            Files.writeString(directory.resolve("journal-0000000000000000000.log"),
+                    RECOVERED_ID + ",7,8,12.50,2024-05-01T10:15:30Z,recovered-key\n"
+                            + (RECOVERED_ID + 2) + ",7,8,3.00,2024-05-01T10:15:31Z,recovered-key\n"
+                            + (RECOVERED_ID + 1) + ",7,8,1");
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
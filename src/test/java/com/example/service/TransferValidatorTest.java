@@ -0,0 +1,68 @@
+package com.example.service;
+
+import com.example.client.MissingAccounts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferValidatorTest {
+    private MissingAccounts missingAccounts;
+    private TransferValidator transferValidator;
+
+    @BeforeEach
+    void setUp() {
+        missingAccounts = new MissingAccounts();
+        ReflectionTestUtils.setField(missingAccounts, "enabled", true);
+        ReflectionTestUtils.setField(missingAccounts, "maximumSize", 100L);
+        ReflectionTestUtils.setField(missingAccounts, "ttl", Duration.ofMinutes(1));
+        missingAccounts.init();
+        transferValidator = new TransferValidator();
+        ReflectionTestUtils.setField(transferValidator, "missingAccounts", missingAccounts);
+    }
+
+    @Test
+    void whenTransferCannotSucceed_rejectedWithItsReason() {
+        assertNull(transferValidator.check(1L, 2L, new BigDecimal("10.50")));
+        assertNull(transferValidator.check(1L, 2L, new BigDecimal("10.500")));
+        assertEquals(TransferValidator.Rejection.MISSING_AMOUNT, transferValidator.check(1L, 2L, null));
+        assertEquals(TransferValidator.Rejection.NON_POSITIVE_AMOUNT, transferValidator.check(1L, 2L, BigDecimal.ZERO));
+        assertEquals(TransferValidator.Rejection.NON_POSITIVE_AMOUNT, transferValidator.check(1L, 2L, new BigDecimal("-1")));
+        assertNull(transferValidator.check(1L, 2L, new BigDecimal("10.005")));
+        assertEquals(TransferValidator.Rejection.NON_POSITIVE_AMOUNT, transferValidator.check(1L, 2L, new BigDecimal("0.004")));
+        assertEquals(TransferValidator.Rejection.AMOUNT_TOO_LARGE, transferValidator.check(1L, 2L, new BigDecimal("1e30")));
+        assertEquals(TransferValidator.Rejection.SELF_TRANSFER, transferValidator.check(1L, 1L, BigDecimal.TEN));
+
+        missingAccounts.add(2L);
+        assertEquals(TransferValidator.Rejection.RECIPIENT_NOT_FOUND, transferValidator.check(1L, 2L, BigDecimal.TEN));
+        assertEquals(TransferValidator.Rejection.SENDER_NOT_FOUND, transferValidator.check(2L, 1L, BigDecimal.TEN));
+        missingAccounts.remove(2L);
+        assertNull(transferValidator.check(1L, 2L, BigDecimal.TEN));
+    }
+
+    @Test
+    void whenRateLimited_senderRejectedAfterBurst() {
+        ReflectionTestUtils.setField(transferValidator, "rateLimitEnabled", true);
+        ReflectionTestUtils.setField(transferValidator, "perSender", 0.001);
+        ReflectionTestUtils.setField(transferValidator, "burst", 3);
+        ReflectionTestUtils.setField(transferValidator, "maximumSenders", 100L);
+        transferValidator.init();
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(transferValidator.checkRate(1L));
+        }
+        TransferValidator.Rejection rejection = transferValidator.checkRate(1L);
+
+        assertEquals(TransferValidator.Rejection.RATE_LIMITED, rejection);
+        assertSame(rejection.exception(), TransferValidator.Rejection.RATE_LIMITED.exception());
+        assertEquals(0, rejection.exception().getStackTrace().length);
+        // other senders have their own bucket
+        assertNull(transferValidator.checkRate(2L));
+        // validation alone does not take tokens
+        assertNull(transferValidator.check(1L, 2L, BigDecimal.TEN));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.support;
+
+import com.example.dto.AccountResponse;
+import com.example.dto.BalanceAdjustment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for account-service, serving {@code GET /accounts/{id}},
+ * {@code PUT /accounts/{id}/balance} and {@code POST /accounts/{id}/balance/adjustments} from an
+ * in-memory map. Every write bumps the account version; adjustments honour {@code If-Match}
+ * and are applied at most once per {@code Idempotency-Key}. Requests can be slowed down with
+ * {@link #setDelay} and answered with 500 after the delay with {@link #setFailing}, or only the
+ * writes to one account with {@link #setFailingWrites}. {@link #getBalanceHistory} lists every
+ * balance an account had, in the order the writes were applied.
+ */
+public class StubAccountServer implements AutoCloseable {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Long, AccountState> accounts = new ConcurrentHashMap<>();
+    private final Map<String, AccountState> appliedAdjustments = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final HttpServer server;
+    private volatile Duration delay = Duration.ZERO;
+    private final Map<Long, List<BigDecimal>> balanceHistory = new ConcurrentHashMap<>();
+    private final Set<Long> failingWrites = ConcurrentHashMap.newKeySet();
+    private volatile boolean failing;
+
+    public StubAccountServer() throws IOException {
+        // without TCP_NODELAY the separate header and body writes stall on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/accounts/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Starts a server for a static field, where the checked {@link IOException} cannot be thrown.
+     */
+    public static StubAccountServer start() {
+        try {
+            return new StubAccountServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/accounts/";
+    }
+
+    public void addAccount(Long id, BigDecimal balance) {
+        accounts.put(id, new AccountState(balance, 0));
+        balanceHistory.put(id, new ArrayList<>(List.of(balance)));
+    }
+
+    public List<BigDecimal> getBalanceHistory(Long id) {
+        List<BigDecimal> history = balanceHistory.get(id);
+        synchronized (history) {
+            return List.copyOf(history);
+        }
+    }
+
+    public BigDecimal getBalance(Long id) {
+        return accounts.get(id).balance();
+    }
+
+    public BigDecimal getTotalBalance() {
+        return accounts.values().stream().map(AccountState::balance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public void setDelay(Duration delay) {
+        this.delay = delay;
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public void setFailingWrites(Long accountId, boolean failing) {
+        if (failing) {
+            failingWrites.add(accountId);
+        } else {
+            failingWrites.remove(accountId);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            if (!delay.isZero()) {
+                Thread.sleep(delay.toMillis());
+            }
+            if (failing) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            String[] path = exchange.getRequestURI().getPath().substring("/accounts/".length()).split("/");
+            Long id = Long.valueOf(path[0]);
+            AccountState state = accounts.get(id);
+            if (state == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod()) && failingWrites.contains(id)) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            if ("PUT".equals(exchange.getRequestMethod()) && path.length == 2 && "balance".equals(path[1])) {
+                BigDecimal balance = objectMapper.readValue(exchange.getRequestBody(), BigDecimal.class);
+                accounts.compute(id, (key, current) -> {
+                    recordBalance(id, balance);
+                    return new AccountState(balance, current.version() + 1);
+                });
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            if ("POST".equals(exchange.getRequestMethod()) && path.length == 3 && "adjustments".equals(path[2])) {
+                BalanceAdjustment adjustment = objectMapper.readValue(exchange.getRequestBody(), BalanceAdjustment.class);
+                state = adjust(id, adjustment.getDelta(), exchange.getRequestHeaders().getFirst("If-Match"),
+                        exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+                if (state == null) {
+                    exchange.sendResponseHeaders(412, -1);
+                    return;
+                }
+            }
+
+            AccountResponse account = new AccountResponse();
+            account.setId(id);
+            account.setName("Account " + id);
+            account.setEmail("account" + id + "@test.com");
+            account.setBalance(state.balance());
+            account.setVersion(state.version());
+            byte[] body = objectMapper.writeValueAsBytes(account);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AccountState adjust(Long id, BigDecimal delta, String ifMatch, String idempotencyKey) {
+        AccountState[] result = new AccountState[1];
+        accounts.compute(id, (key, current) -> {
+            AccountState applied = idempotencyKey == null ? null : appliedAdjustments.get(idempotencyKey);
+            if (applied != null) {
+                result[0] = applied;
+                return current;
+            }
+            if (ifMatch != null && !ifMatch.equals("\"" + current.version() + "\"")) {
+                return current;
+            }
+            AccountState updated = new AccountState(current.balance().add(delta), current.version() + 1);
+            recordBalance(id, updated.balance());
+            if (idempotencyKey != null) {
+                appliedAdjustments.put(idempotencyKey, updated);
+            }
+            result[0] = updated;
+            return updated;
+        });
+        return result[0];
+    }
+
+    private void recordBalance(Long id, BigDecimal balance) {
+        List<BigDecimal> history = balanceHistory.get(id);
+        synchronized (history) {
+            history.add(balance);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private record AccountState(BigDecimal balance, long version) {
+    }
+}